@@ -3,11 +3,18 @@ package com.cvte.ciot.core;
 import com.cvte.ciot.core.callback.IotLogCallback;
 import com.cvte.ciot.core.callback.NativeCallback;
 import com.cvte.ciot.core.callback.OnCustomTopicCallback;
+import com.cvte.ciot.core.callback.OnTslDownAsyncCallback;
 import com.cvte.ciot.core.callback.OnTslDownCallback;
+import com.cvte.ciot.core.model.CallOptions;
+import com.cvte.ciot.core.model.PublishResult;
 import com.cvte.ciot.core.model.tsl.TslBasic;
 import com.cvte.ciot.core.model.tsl.TslRequest;
 import com.cvte.ciot.core.model.tsl.TslResponse;
 
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * @author AnswerDev
  * @date 2025/12/7 04:02
@@ -16,16 +23,48 @@ import com.cvte.ciot.core.model.tsl.TslResponse;
 public interface IIoTClient {
     TslResponse callService(TslBasic tslBasic, TslRequest tslRequest);
 
+    TslResponse callService(TslBasic tslBasic, TslRequest tslRequest, CallOptions options);
+
+    CompletableFuture<TslResponse> callServiceAsync(TslBasic tslBasic, TslRequest tslRequest);
+
+    CompletableFuture<TslResponse> callServiceAsync(TslBasic tslBasic, TslRequest tslRequest, CallOptions options);
+
     TslResponse getProperty(TslBasic tslBasic, TslRequest tslRequest);
 
+    TslResponse getProperty(TslBasic tslBasic, TslRequest tslRequest, CallOptions options);
+
+    CompletableFuture<TslResponse> getPropertyAsync(TslBasic tslBasic, TslRequest tslRequest);
+
+    CompletableFuture<TslResponse> getPropertyAsync(TslBasic tslBasic, TslRequest tslRequest, CallOptions options);
+
+    void invalidateResponseCache(String method);
+
+    void invalidateResponseCache();
+
     boolean isConnected();
 
     boolean postEvent(TslBasic tslBasic, TslRequest tslRequest);
 
+    boolean postEvent(TslBasic tslBasic, TslRequest tslRequest, int qos);
+
+    List<Boolean> postEvents(TslBasic tslBasic, List<TslRequest> tslRequests, boolean aggregate);
+
+    List<Boolean> postEvents(TslBasic tslBasic, List<TslRequest> tslRequests, boolean aggregate, int qos);
+
     boolean postProperty(TslBasic tslBasic, TslRequest tslRequest);
 
+    boolean postProperty(TslBasic tslBasic, TslRequest tslRequest, int qos);
+
     boolean publishCustom(String str, String str2, String str3);
 
+    boolean publishCustom(String topic, String traceId, byte[] params);
+
+    boolean publishCustom(String topic, String traceId, ByteBuffer params);
+
+    CompletableFuture<PublishResult> publishCustomAsync(String topic, String traceId, String params);
+
+    CompletableFuture<PublishResult> publishCustomAsync(String topic, String traceId, byte[] params);
+
     void setLog(boolean z, IotLogCallback iotLogCallback);
 
     boolean setPropertyGetCallback(OnTslDownCallback onTslDownCallback);
@@ -34,5 +73,15 @@ public interface IIoTClient {
 
     boolean setServiceCallback(OnTslDownCallback onTslDownCallback);
 
+    boolean setMethodCallback(String method, OnTslDownCallback onTslDownCallback);
+
+    boolean setPropertyGetAsyncCallback(OnTslDownAsyncCallback onTslDownAsyncCallback);
+
+    boolean setPropertySetAsyncCallback(OnTslDownAsyncCallback onTslDownAsyncCallback);
+
+    boolean setServiceAsyncCallback(OnTslDownAsyncCallback onTslDownAsyncCallback);
+
+    boolean setMethodAsyncCallback(String method, OnTslDownAsyncCallback onTslDownAsyncCallback);
+
     boolean subscribeCustom(String str, NativeCallback.OnCustomTopic onCustomTopicCallback);
 }
\ No newline at end of file
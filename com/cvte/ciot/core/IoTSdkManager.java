@@ -7,6 +7,7 @@ import com.cvte.ciot.core.iotexception.NotSupportProtocolException;
 import com.cvte.ciot.core.model.DeviceAuth;
 import com.cvte.ciot.core.model.IoTProtocol;
 import com.cvte.ciot.core.model.RegisterConfig;
+import com.cvte.ciot.core.model.ResponseCacheConfig;
 import com.cvte.ciot.core.model.SSLOption;
 import com.cvte.ciot.core.mqtt.Iot;
 import com.cvte.ciot.core.mqtt.MqttIoTClient;
@@ -37,6 +38,7 @@ public class IoTSdkManager {
     private final Iot mIot;
     private volatile IoTProtocol protocol;
     private volatile RegisterConfig registerConfig;
+    private volatile ResponseCacheConfig responseCache;
 
 
     public IoTSdkManager() {
@@ -124,6 +126,7 @@ public class IoTSdkManager {
     private boolean initMqttInNative(String str, String str2, DeviceAuth deviceAuth, SSLOption sSLOption, OnConnectState onConnectSSLStateCallback) {
         try {
             Log.d(TAG, "init Mqtt !!!");
+            this.mIot.setResponseCache(this.responseCache);
             return this.mIot.initMqtt(str, "8883", deviceAuth, sSLOption, onConnectSSLStateCallback);
         } catch (Exception e) {
             e.printStackTrace();
@@ -204,6 +207,7 @@ public class IoTSdkManager {
         private String deviceName;
         private IoTProtocol protocol;
         private RegisterConfig registerConfig;
+        private ResponseCacheConfig responseCache;
 
         public Singleton(){
 
@@ -234,6 +238,14 @@ public class IoTSdkManager {
             return this;
         }
 
+        /**
+         * 上行 propertyGet/serviceCall 的响应缓存，不设置时不缓存
+         */
+        public Singleton setResponseCache(ResponseCacheConfig responseCacheConfig) {
+            this.responseCache = responseCacheConfig;
+            return this;
+        }
+
         public IoTSdkManager single() throws NotSupportProtocolException {
             if (this.brokerUrl == null) {
                 throw new IllegalArgumentException("Must invoke setBrokerUrl argument first!!");
@@ -252,6 +264,7 @@ public class IoTSdkManager {
                     IoTSdkManager.sInstance.registerConfig = this.registerConfig;
                     IoTSdkManager.sInstance.protocol = this.protocol;
                     IoTSdkManager.sInstance.mAuthenticator = this.authenticator;
+                    IoTSdkManager.sInstance.responseCache = this.responseCache;
                 } else {
                     synchronized (IoTSdkManager.class) {
                         if (IoTSdkManager.sInstance == null) {
@@ -270,6 +283,7 @@ public class IoTSdkManager {
                             IoTSdkManager.sInstance.registerConfig = this.registerConfig;
                             IoTSdkManager.sInstance.protocol = this.protocol;
                             IoTSdkManager.sInstance.mAuthenticator = this.authenticator;
+                            IoTSdkManager.sInstance.responseCache = this.responseCache;
                         } finally {
                         }
                     }
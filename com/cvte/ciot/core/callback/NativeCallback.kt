@@ -1,7 +1,10 @@
 package com.cvte.ciot.core.callback
 
 import com.cvte.ciot.core.model.tsl.TslBasic
+import com.cvte.ciot.core.model.tsl.TslRawRequest
 import com.cvte.ciot.core.model.tsl.TslRequest
+import com.cvte.ciot.core.model.tsl.TslResponse
+import java.util.concurrent.CompletionStage
 
 /**
  *
@@ -29,4 +32,25 @@ class NativeCallback {
     fun interface OnCustomTopic {
         fun onTopicMessage(topic: String, message: String)
     }
+
+    /**
+     * 字节形式的下行请求回调，params 以原始字节区间提供
+     */
+    fun interface OnTslRawRequest {
+        fun onRequest(basic: TslBasic, req: TslRawRequest)
+    }
+
+    /**
+     * 字节形式的自定义 Topic 回调，payload 为 MQTT 消息原始字节
+     */
+    fun interface OnCustomTopicRaw {
+        fun onTopicMessage(topic: String, payload: ByteArray)
+    }
+
+    /**
+     * 异步下行请求回调，stage 完成后以其结果回复云端
+     */
+    fun interface OnTslAsyncRequest {
+        fun onRequest(basic: TslBasic, req: TslRequest): CompletionStage<TslResponse>
+    }
 }
\ No newline at end of file
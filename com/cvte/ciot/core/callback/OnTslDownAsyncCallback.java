@@ -0,0 +1,20 @@
+package com.cvte.ciot.core.callback;
+
+import com.cvte.ciot.core.model.tsl.TslResponse;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 16:20
+ * @description OnTslDownAsyncCallback
+ */
+
+/**
+ * 异步下行请求回调。返回的 CompletionStage 完成后 SDK 才回复云端，
+ * 耗时操作 (如文件读写) 可在自有线程中完成，不占用分发线程。
+ * 以 null 完成视为成功，异常完成时回复失败并附带异常信息。
+ */
+public interface OnTslDownAsyncCallback {
+    CompletionStage<TslResponse> onRequest(String params, String method, String deviceId, String isSuccess);
+}
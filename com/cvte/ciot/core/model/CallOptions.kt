@@ -0,0 +1,35 @@
+package com.cvte.ciot.core.model
+
+/**
+ *
+ * @author AnswerDev
+ * @date 2026/10/18 22:20
+ * @description CallOptions
+ */
+
+/**
+ * 单次同步调用 (propertyGet / serviceCall) 的选项
+ */
+data class CallOptions(
+    val timeoutMs: Long // 等待响应的超时时间，小于等于 0 时使用 IoTConfig.syncTimeoutMs
+) {
+
+    companion object {
+        @JvmStatic
+        fun defaultOptions(): CallOptions = CallOptions(timeoutMs = 0)
+
+        @JvmStatic
+        fun builder(): Builder = Builder()
+    }
+
+    class Builder {
+        var timeoutMs: Long = 0
+
+        fun setTimeoutMs(timeoutMs: Long): Builder {
+            this.timeoutMs = timeoutMs
+            return this
+        }
+
+        fun build(): CallOptions = CallOptions(timeoutMs)
+    }
+}
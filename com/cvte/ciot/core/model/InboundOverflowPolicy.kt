@@ -0,0 +1,16 @@
+package com.cvte.ciot.core.model
+
+/**
+ *
+ * @author AnswerDev
+ * @date 2026/10/18 11:40
+ * @description InboundOverflowPolicy
+ */
+/**
+ * 入站队列满时的处理策略。入站分发在 MQTT 回调线程上提交，因此没有阻塞等待的选项：
+ * 阻塞会使发送停滞、等待响应的处理器无法完成
+ */
+enum class InboundOverflowPolicy {
+    DROP_OLDEST,    ///丢弃最早入队的自定义 Topic 消息；没有可丢弃的消息时按 REJECT 处理
+    REJECT          ///拒绝新消息，下行请求在 rpc/response 上回复错误
+}
@@ -2,6 +2,7 @@ package com.cvte.ciot.core.model
 
 import com.cvte.ciot.core.callback.OnConnectSSLStateCallback
 import com.cvte.ciot.core.callback.OnConnectState
+import java.util.zip.Deflater
 
 /**
  *
@@ -14,7 +15,37 @@ data class IoTConfig(
     var version: String = "",       // 本地固件版本
     var deviceName: String = "",    // 设备名称，可为空
     var device: DeviceAuth = DeviceAuth(),         // 设备认证信息
-    var onConnectState: OnConnectState = impl()   // 连接状态回调
+    var onConnectState: OnConnectState = impl(),   // 连接状态回调
+    var inboundLanes: Int = Runtime.getRuntime().availableProcessors(), // 入站分发通道数，同一设备/Topic 的消息在同一通道内保序
+    var inboundQueueCapacity: Int = 10000,  // 入站队列总容量（所有通道共享）
+    var inboundOverflowPolicy: InboundOverflowPolicy = InboundOverflowPolicy.DROP_OLDEST, // 入站队列满时的处理策略
+    // 下行请求在虚拟线程上执行 (Java 21+，不支持时回退到线程池)。
+    // 同一设备的下行请求仍按到达顺序串行执行，不同设备不受 inboundLanes 限制；排队与执行中的请求总数上限为 inboundQueueCapacity
+    var useVirtualThreads: Boolean = false,
+    var requestDedupCapacity: Int = 10000,  // 下行请求去重缓存容量，0 表示关闭去重
+    var requestDedupWindowMs: Long = 60_000, // 去重时间窗口，窗口内重投的请求直接回放首次的响应
+    var requestDedupMaxBytes: Long = 16L * 1024 * 1024, // 去重缓存中响应的总大小上限，超出时淘汰最早的；单个响应超过上限时不缓存，重投时重新处理
+    var inboundLatencyStats: Boolean = true, // 按方法统计下行请求各阶段耗时
+    var syncTimeoutMs: Long = 10_000, // 同步调用 (propertyGet/serviceCall) 默认的响应超时，可由 CallOptions 按次覆盖
+    var syncTimerTickMs: Long = 100, // 同步调用超时的检查精度 (时间轮每格时长)
+    var propertyGetSingleFlight: Boolean = false, // 同一设备、方法与参数的并发属性查询合并为一次请求，共享同一个响应
+    var responseCache: ResponseCacheConfig? = null, // propertyGet/serviceCall 的响应缓存 (按方法 TTL + LRU)，为空时不缓存
+    var maxInflight: Int = 64, // 上行在途 (已发出未确认) 消息窗口，窗口内的消息流水线发送
+    var outboundQueueCapacity: Int = 10000, // 上行每个优先级通道的排队容量，通道满时发布方等待或失败
+    var propertyPostQos: Int = 1, // 属性上报的 QoS，可容忍丢失的高频遥测可设为 0，省去 PUBACK 往返
+    var eventPostQos: Int = 1, // 事件上报 (含批量) 的 QoS
+    // 上行限速 (令牌桶)，超出的消息排队等待令牌而不是丢弃，空表示不限速
+    var topicClassRateLimits: Map<OutboundPriority, RateLimit> = emptyMap(), // 按消息类别限速
+    var deviceRateLimit: RateLimit? = null, // 按设备限速，网关下每个子设备单独计数，自定义 Topic 计入本设备
+    var journalDir: String = "", // 离线消息日志目录，为空时不启用，断线期间的上行消息直接失败
+    var journalSegmentBytes: Int = 4 * 1024 * 1024, // 日志分段文件大小
+    var journalMaxBytes: Long = 64L * 1024 * 1024, // 日志总大小上限，超出时丢弃最早的分段
+    var journalTtlMs: Long = 24 * 60 * 60 * 1000L, // 离线消息有效期，过期消息重放时跳过
+    var journalReplayRate: Int = 200, // 重连后每秒重放的消息数，0 表示不限速
+    var propertyCoalesceWindowMs: Long = 0, // 属性上报合并窗口，窗口内同一设备的属性合并为一条消息，0 表示不合并
+    var propertyCoalesceMaxKeys: Int = 64, // 合并的属性数达到上限时立即发出
+    var compressThresholdBytes: Int = 0, // TSL 上行 payload 超过该字节数时 gzip 压缩 (需云端支持)，同时解压 gzip 格式的 TSL 入站消息；自定义 Topic 与 publishMessage 原样收发；0 表示都不处理
+    var compressLevel: Int = Deflater.DEFAULT_COMPRESSION // 压缩级别 0-9
 ) {
 }
 
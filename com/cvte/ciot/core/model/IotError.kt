@@ -19,6 +19,7 @@ enum class IotError(val code: Int) {
     IOT_ERROR_MQTT_EXCEPT(9),          ///MQTT客户端发生异常
     IOT_ERROR_REGISTER_FAILED(10),      ///动态注册失败
     IOT_ERROR_RECONNECT_TIMEOUT(11),    ///重连时间超过120s
+    IOT_ERROR_BUSY(12),                 ///入站队列已满，请求被拒绝
     IOT_ERROR_START(170000);        ///SDK段起始错误码
 
     /**
@@ -0,0 +1,14 @@
+package com.cvte.ciot.core.model
+
+/**
+ *
+ * @author AnswerDev
+ * @date 2026/10/18 20:20
+ * @description OutboundPriority
+ */
+enum class OutboundPriority(val weight: Int) {
+    CONTROL(8),     ///设备控制面消息：基础信息/配置版本上报、子设备上下线等
+    RPC(4),         ///下行请求的响应、同步 propertyGet/serviceCall 请求
+    TELEMETRY(2),   ///属性/事件上报、自定义 Topic 消息
+    BULK(1)         ///批量事件、离线日志重放等大流量消息
+}
@@ -0,0 +1,23 @@
+package com.cvte.ciot.core.model
+
+/**
+ *
+ * @author AnswerDev
+ * @date 2026/10/18 21:40
+ * @description PublishResult
+ */
+data class PublishResult(
+    val isSuccess: Boolean, // QoS 1/2 收到 PUBACK/PUBCOMP，QoS 0 已写出；写入离线日志也视为成功
+    val messageId: Int, // MQTT 报文标识，QoS 0 或未发出的消息为 0
+    val latencyNanos: Long, // 从进入发送队列到确认 (或失败) 的耗时
+    val failureReason: String? = null, // 失败原因，成功时为 null
+    val isJournaled: Boolean = false, // 断线时写入了离线日志，将在重连后发出
+) {
+    companion object {
+        @JvmStatic
+        fun failed(reason: String): PublishResult = PublishResult(false, 0, 0, reason)
+
+        @JvmStatic
+        fun journaled(): PublishResult = PublishResult(true, 0, 0, isJournaled = true)
+    }
+}
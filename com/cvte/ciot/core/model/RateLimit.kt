@@ -0,0 +1,12 @@
+package com.cvte.ciot.core.model
+
+/**
+ *
+ * @author AnswerDev
+ * @date 2026/10/18 21:05
+ * @description RateLimit
+ */
+data class RateLimit(
+    val permitsPerSecond: Double, // 每秒允许发出的消息数
+    val burst: Int = 1, // 允许的突发条数 (令牌桶容量)
+)
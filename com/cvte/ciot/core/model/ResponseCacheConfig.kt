@@ -0,0 +1,40 @@
+package com.cvte.ciot.core.model
+
+/**
+ *
+ * @author AnswerDev
+ * @date 2026/10/18 23:40
+ * @description ResponseCacheConfig
+ */
+
+/**
+ * 上行 propertyGet / serviceCall 的响应缓存配置。
+ * 方法名为完整方法名，如 thing.service.getSchedule、thing.property.get，只缓存列出的方法的成功响应
+ */
+data class ResponseCacheConfig(
+    val maxEntries: Int, // 缓存条目上限，超出时淘汰最久未访问的
+    val methodTtlMs: Map<String, Long> // 方法 -> 缓存有效期
+) {
+
+    companion object {
+        @JvmStatic
+        fun builder(): Builder = Builder()
+    }
+
+    class Builder {
+        var maxEntries: Int = 1024
+        val methodTtlMs: MutableMap<String, Long> = LinkedHashMap()
+
+        fun setMaxEntries(maxEntries: Int): Builder {
+            this.maxEntries = maxEntries
+            return this
+        }
+
+        fun setTtl(method: String, ttlMs: Long): Builder {
+            this.methodTtlMs[method] = ttlMs
+            return this
+        }
+
+        fun build(): ResponseCacheConfig = ResponseCacheConfig(maxEntries, methodTtlMs.toMap())
+    }
+}
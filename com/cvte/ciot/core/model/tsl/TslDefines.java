@@ -88,6 +88,9 @@ public final class TslDefines {
     /** 上行事件上报前缀 */
     public static final String UP_METHOD_EVENT_POST = "thing.event.";
 
+    /** 批量事件上报，params.events 为 {method, params} 数组 */
+    public static final String UP_METHOD_EVENT_BATCH_POST = "thing.event.batch.post";
+
     /* ========== 网关类方法 ========== */
 
     /** 获取网关下挂子设备 */
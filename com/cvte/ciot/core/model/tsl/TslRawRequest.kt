@@ -0,0 +1,43 @@
+package com.cvte.ciot.core.model.tsl
+
+import com.cvte.ciot.core.utils.TslByteDecoder
+import java.nio.ByteBuffer
+
+/**
+ *
+ * @author AnswerDev
+ * @date 2026/10/18 14:02
+ * @description TslRawRequest
+ */
+
+/**
+ * 字节形式的下行请求：params 不做拷贝，仅记录其在原始 payload 中的区间。
+ * payload 为 MQTT 消息自身的字节数组，回调返回后不应再持有。
+ */
+class TslRawRequest {
+    var method: String = ""
+    var payload: ByteArray = EMPTY_PAYLOAD
+    var paramsOffset: Int = 0
+    var paramsLength: Int = 0   ///0 表示请求中没有 params
+
+    fun hasParams(): Boolean = paramsLength > 0
+
+    /**
+     * params 的只读视图 (原样 JSON，不拷贝)
+     */
+    fun paramsBuffer(): ByteBuffer =
+        ByteBuffer.wrap(payload, paramsOffset, paramsLength).slice().asReadOnlyBuffer()
+
+    /**
+     * params 转为字符串，规则与 JsonHelper.deserializeTslReq 一致：
+     * 对象/数组取 JSON 文本，字符串取其值，缺省为 "{}"
+     */
+    fun paramsString(): String =
+        if (hasParams()) TslByteDecoder.valueToString(payload, paramsOffset, paramsOffset + paramsLength) else "{}"
+
+    fun toTslRequest(): TslRequest = TslRequest(method, paramsString())
+
+    companion object {
+        private val EMPTY_PAYLOAD = ByteArray(0)
+    }
+}
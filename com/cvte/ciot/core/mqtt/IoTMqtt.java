@@ -1,16 +1,21 @@
 package com.cvte.ciot.core.mqtt;
 
 import com.cvte.ciot.core.callback.NativeCallback;
+import com.cvte.ciot.core.model.CallOptions;
 import com.cvte.ciot.core.model.DeviceAuth;
 import com.cvte.ciot.core.model.GrailLog;
 import com.cvte.ciot.core.model.tsl.TslBasic;
 import com.cvte.ciot.core.model.tsl.TslRequest;
 import com.cvte.ciot.core.model.tsl.TslResponse;
 import com.cvte.ciot.core.model.IoTConfig;
+import com.cvte.ciot.core.model.PublishResult;
 import com.cvte.ciot.core.model.tsl.TslConfigKey;
 import dev.answer.seewocampus.com.cvte.ciot.core.mqtt.IoTMqttImpl;
 
+import java.nio.ByteBuffer;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author AnswerDev
@@ -119,6 +124,53 @@ public class IoTMqtt {
         return _impl.subscribeCustom(topic, callback);
     }
 
+    public void SetMethodCallback(String method, NativeCallback.OnTslRequest callback) {
+        // 为具体方法设置回调，优先于通用回调
+        _impl.setMethodCallback(method, callback);
+    }
+
+    /************************************************************************/
+    /* 下行字节回调（payload 不转 String，params 以原始区间提供）                */
+    /************************************************************************/
+    public void SetPropertySetCallback(NativeCallback.OnTslRawRequest callback) {
+        _impl.setPropertySetCallback(callback);
+    }
+
+    public void SetPropertyGetCallback(NativeCallback.OnTslRawRequest callback) {
+        _impl.setPropertyGetCallback(callback);
+    }
+
+    public void SetServiceCallback(NativeCallback.OnTslRawRequest callback) {
+        _impl.setServiceCallback(callback);
+    }
+
+    public boolean SubscribeCustom(String topic, NativeCallback.OnCustomTopicRaw callback) {
+        return _impl.subscribeCustom(topic, callback);
+    }
+
+    public void SetMethodCallback(String method, NativeCallback.OnTslRawRequest callback) {
+        _impl.setMethodCallback(method, callback);
+    }
+
+    /************************************************************************/
+    /* 下行异步回调（返回的 CompletionStage 完成后回复云端）                     */
+    /************************************************************************/
+    public void SetPropertySetCallback(NativeCallback.OnTslAsyncRequest callback) {
+        _impl.setPropertySetCallback(callback);
+    }
+
+    public void SetPropertyGetCallback(NativeCallback.OnTslAsyncRequest callback) {
+        _impl.setPropertyGetCallback(callback);
+    }
+
+    public void SetServiceCallback(NativeCallback.OnTslAsyncRequest callback) {
+        _impl.setServiceCallback(callback);
+    }
+
+    public void SetMethodCallback(String method, NativeCallback.OnTslAsyncRequest callback) {
+        _impl.setMethodCallback(method, callback);
+    }
+
     /************************************************************************/
     /* 上行（设备 -> 云端）                                                   */
     /************************************************************************/
@@ -127,26 +179,103 @@ public class IoTMqtt {
         return _impl.propertyPost(basic, req);
     }
 
+    public boolean PropertyPost(TslBasic basic, TslRequest req, int qos) {
+        // 属性上报，指定 QoS
+        return _impl.propertyPost(basic, req, qos);
+    }
+
     public boolean EventPost(TslBasic basic, TslRequest req) {
         // 事件上报
         return _impl.eventPost(basic, req);
     }
 
+    public boolean EventPost(TslBasic basic, TslRequest req, int qos) {
+        // 事件上报，指定 QoS
+        return _impl.eventPost(basic, req, qos);
+    }
+
+    public List<Boolean> EventPosts(TslBasic basic, List<TslRequest> reqs, boolean aggregate) {
+        // 批量事件上报，返回每条事件的受理结果
+        return _impl.eventPosts(basic, reqs, aggregate);
+    }
+
+    public List<Boolean> EventPosts(TslBasic basic, List<TslRequest> reqs, boolean aggregate, int qos) {
+        // 批量事件上报，指定 QoS
+        return _impl.eventPosts(basic, reqs, aggregate, qos);
+    }
+
     public boolean PropertyGet(TslBasic basic, TslRequest req, TslResponse res) {
         // 上行属性获取
         return _impl.propertyGet(basic, req, res);
     }
 
+    public boolean PropertyGet(TslBasic basic, TslRequest req, TslResponse res, CallOptions options) {
+        // 上行属性获取，按次指定超时等选项
+        return _impl.propertyGet(basic, req, res, options);
+    }
+
     public boolean ServiceCall(TslBasic basic, TslRequest req, TslResponse res) {
         // 上行服务调用
         return _impl.serviceCall(basic, req, res);
     }
 
+    public boolean ServiceCall(TslBasic basic, TslRequest req, TslResponse res, CallOptions options) {
+        // 上行服务调用，按次指定超时等选项
+        return _impl.serviceCall(basic, req, res, options);
+    }
+
+    public CompletableFuture<TslResponse> PropertyGetAsync(TslBasic basic, TslRequest req) {
+        // 异步属性获取，收到响应或超时时完成
+        return _impl.propertyGetAsync(basic, req);
+    }
+
+    public CompletableFuture<TslResponse> PropertyGetAsync(TslBasic basic, TslRequest req, CallOptions options) {
+        return _impl.propertyGetAsync(basic, req, options);
+    }
+
+    public CompletableFuture<TslResponse> ServiceCallAsync(TslBasic basic, TslRequest req) {
+        // 异步服务调用，收到响应或超时时完成
+        return _impl.serviceCallAsync(basic, req);
+    }
+
+    public CompletableFuture<TslResponse> ServiceCallAsync(TslBasic basic, TslRequest req, CallOptions options) {
+        return _impl.serviceCallAsync(basic, req, options);
+    }
+
+    public void InvalidateResponseCache(String method) {
+        // 移除某个方法 (完整方法名) 的缓存响应
+        _impl.invalidateResponseCache(method);
+    }
+
+    public void InvalidateResponseCache() {
+        // 清空响应缓存
+        _impl.invalidateResponseCache();
+    }
+
     public boolean PublishCustom(String topic, String traceId, String params) {
         // 发布自定义主题
         return _impl.publishCustom(topic, traceId, params);
     }
 
+    public boolean PublishCustom(String topic, String traceId, byte[] params) {
+        // 发布自定义主题，已编码的字节直接发送
+        return _impl.publishCustom(topic, traceId, params);
+    }
+
+    public boolean PublishCustom(String topic, String traceId, ByteBuffer params) {
+        // 发布自定义主题，发送 position 到 limit 之间的内容
+        return _impl.publishCustom(topic, traceId, params);
+    }
+
+    public CompletableFuture<PublishResult> PublishCustomAsync(String topic, String traceId, String params) {
+        // 异步发布自定义主题，PUBACK 到达或失败时完成
+        return _impl.publishCustomAsync(topic, traceId, params);
+    }
+
+    public CompletableFuture<PublishResult> PublishCustomAsync(String topic, String traceId, byte[] params) {
+        return _impl.publishCustomAsync(topic, traceId, params);
+    }
+
     /************************************************************************/
     /* 网关类设备                                                            */
     /************************************************************************/
@@ -187,6 +316,56 @@ public class IoTMqtt {
         return _impl.publishMessage(topic, payload, qos, isRetain);
     }
 
+    /**
+     * 直接发布已编码的 MQTT 消息，payload 不做转换与复制
+     */
+    public boolean PublishMessage(String topic, byte[] payload, int qos, boolean isRetain) {
+        return _impl.publishMessage(topic, payload, qos, isRetain);
+    }
+
+    /**
+     * 直接发布 ByteBuffer 中 position 到 limit 之间的内容，不改变其 position
+     */
+    public boolean PublishMessage(String topic, ByteBuffer payload, int qos, boolean isRetain) {
+        return _impl.publishMessage(topic, payload, qos, isRetain);
+    }
+
+    /**
+     * 异步发布原始MQTT消息
+     * @return PUBACK/PUBCOMP 到达 (QoS 0 为写出) 或失败时完成，携带 messageId、入队到确认的耗时与失败原因
+     */
+    public CompletableFuture<PublishResult> PublishMessageAsync(String topic, String payload, int qos, boolean isRetain) {
+        return _impl.publishMessageAsync(topic, payload, qos, isRetain);
+    }
+
+    public CompletableFuture<PublishResult> PublishMessageAsync(String topic, byte[] payload, int qos, boolean isRetain) {
+        return _impl.publishMessageAsync(topic, payload, qos, isRetain);
+    }
+
+    /**
+     * 入站队列统计
+     * @return 容量、当前深度、峰值深度及丢弃/拒绝次数
+     */
+    public Map<String, Long> getInboundStats() {
+        return _impl.getInboundStats();
+    }
+
+    /**
+     * 上行发布统计
+     * @return 在途窗口大小、当前在途数及失败次数
+     */
+    public Map<String, Long> getOutboundStats() {
+        return _impl.getOutboundStats();
+    }
+
+    /**
+     * 下行请求分阶段耗时
+     * @return 方法 -> 阶段 (queueWait/decode/handler/publish) -> count/p50Us/p99Us/p999Us/maxUs
+     */
+    public Map<String, Map<String, Map<String, Long>>> getLatencyStats() {
+        return _impl.getLatencyStats();
+    }
+
     /**
      * 获取底层实现（用于调试或扩展）
      * @return IoTMqttImpl实例
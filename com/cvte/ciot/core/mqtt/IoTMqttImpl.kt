@@ -1,24 +1,52 @@
 package dev.answer.seewocampus.com.cvte.ciot.core.mqtt
 
 import com.cvte.ciot.core.callback.NativeCallback.*
+import com.cvte.ciot.core.model.CallOptions
 import com.cvte.ciot.core.model.DeviceAuth
 import com.cvte.ciot.core.model.IoTConfig
 import com.cvte.ciot.core.model.IotError
+import com.cvte.ciot.core.model.OutboundPriority
+import com.cvte.ciot.core.model.PublishResult
 import com.cvte.ciot.core.model.tsl.*
 import com.cvte.ciot.core.mqtt.MqttClientAdapter
+import com.cvte.ciot.core.utils.HashedWheelTimer
+import com.cvte.ciot.core.utils.InboundLatencyStats
+import com.cvte.ciot.core.utils.InboundLatencyStats.Stage
+import com.cvte.ciot.core.utils.JournalReplayer
 import com.cvte.ciot.core.utils.JsonHelper
+import com.cvte.ciot.core.utils.KeyedLaneExecutor
+import com.cvte.ciot.core.utils.OutboundJournal
+import com.cvte.ciot.core.utils.PayloadCompressor
+import com.cvte.ciot.core.utils.PropertyCoalescer
+import com.cvte.ciot.core.utils.RequestDedupCache
+import com.cvte.ciot.core.utils.ResponseCache
+import com.cvte.ciot.core.utils.SingleFlight
+import com.cvte.ciot.core.utils.TokenBucketLimiter
 import com.cvte.ciot.core.utils.TopicParser
+import com.cvte.ciot.core.utils.TopicTrie
+import com.cvte.ciot.core.utils.TslByteDecoder
+import com.cvte.ciot.core.utils.TslMethodRegistry
 import com.cvte.ciot.core.utils.Utils
+import com.cvte.ciot.core.utils.VirtualThreads
+import com.cvte.ciot.core.utils.WeightedLaneQueue
 import com.google.gson.Gson
 
+import org.eclipse.paho.client.mqttv3.IMqttActionListener
 import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken
-import org.eclipse.paho.client.mqttv3.MqttClient
+import org.eclipse.paho.client.mqttv3.IMqttToken
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient
+import org.eclipse.paho.client.mqttv3.MqttCallbackExtended
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions
 import org.eclipse.paho.client.mqttv3.MqttException
 import org.eclipse.paho.client.mqttv3.MqttMessage
 import java.util.concurrent.*
 import java.util.concurrent.atomic.AtomicInteger
-import org.eclipse.paho.client.mqttv3.MqttCallback
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.locks.LockSupport
+import java.io.File
+import java.io.IOException
+import java.nio.ByteBuffer
 
 
 /**
@@ -31,27 +59,169 @@ class IoTMqttImpl(
     private val config: IoTConfig, // val/var 关键字直接声明为类的属性
 ) {
 
-    private val poolDown: ExecutorService = Executors.newFixedThreadPool(4)
-    private val poolUp: ExecutorService = Executors.newFixedThreadPool(4)
+    // 虚拟线程执行器，未开启或 JVM 不支持时为 null
+    private val virtualPool: ExecutorService? =
+        if (config.useVirtualThreads) VirtualThreads.newPerTaskExecutor() else null
+
+    // 入站分发: 按 deviceId (自定义 Topic 按 topic) 分通道串行执行，总容量有界。
+    // 提交发生在 MQTT 回调线程上，该线程还要执行 token 回调 (归还在途窗口) 并分发 up/response，
+    // 阻塞会使发送停滞、等待响应的处理器无法完成，因此溢出策略只能丢弃或拒绝
+    private val poolDown = KeyedLaneExecutor(
+        config.inboundLanes, "iot-down",
+        config.inboundQueueCapacity, config.inboundOverflowPolicy,
+        virtualPool
+    )
     private val sessionId: String = Utils.GetRandomID()
     private val envType = AtomicInteger(0)
 
     // --- 回调存储 ---
-    private var propertySetCallback: OnTslRequest? = null
-    private var propertyGetCallback: OnTslRequest? = null
-    private var serviceCallback: OnTslRequest? = null
+    // 统一保存为异步处理器，同步/字节形式的回调在设置时适配，仅在需要时才物化 params
+    private var propertySetCallback: RequestHandler? = null
+    private var propertyGetCallback: RequestHandler? = null
+    private var serviceCallback: RequestHandler? = null
     private var configCallback: OnTslConfig? = null
     private var upgradeCallback: OnTslUpgrade? = null
 
-    private val customTopicCbs: MutableMap<String, OnCustomTopic> = ConcurrentHashMap()
+    private val customTopicCbs: MutableMap<String, OnCustomTopicRaw> = ConcurrentHashMap()
+
+    // --- 下行方法分发 ---
+    // 内置方法同时注册全名与简称 (兼容 isTheMethod 的匹配规则)，thing.service.* 由 serviceCallback 兜底；
+    // configPush / upgrade 的全名与简称都不能被 setMethodCallback 覆盖
+    private val methodHandlers = TslMethodRegistry<DownHandler>().apply {
+        registerWithIdentifier(TslDefines.DOWN_METHOD_PROPERTY_SET, DownHandler { _, basic, req ->
+            propertySetCallback?.handle(basic, req) ?: completedSuccess()
+        })
+        registerWithIdentifier(TslDefines.DOWN_METHOD_PROPERTY_GET, DownHandler { _, basic, req ->
+            propertyGetCallback?.handle(basic, req) ?: completedSuccess()
+        })
+        registerBuiltin(TslDefines.DOWN_SERVICE_CONFIG_PUSH, DownHandler { topic, basic, req ->
+            CompletableFuture.completedFuture(successResponse().also { handleServiceConfigPush(topic, basic, req, it) })
+        })
+        registerBuiltin(TslDefines.DOWN_SERVICE_UPGRADE, DownHandler { topic, basic, req ->
+            CompletableFuture.completedFuture(successResponse().also { handleServiceUpgrade(topic, basic, req, it) })
+        })
+        registerPrefix(TslDefines.DOWN_METHOD_SERVICE, DownHandler { _, basic, req ->
+            serviceCallback?.handle(basic, req)
+        })
+    }
+
+    // --- 下行请求去重 ---
+    // Broker 重连后重投的 QoS1 请求按 messageId + traceId 识别，缓存的是已序列化的响应，按字符数计大小
+    private val requestDedup: RequestDedupCache<String>? =
+        if (config.requestDedupCapacity > 0 && config.requestDedupWindowMs > 0 && config.requestDedupMaxBytes > 0) {
+            RequestDedupCache(
+                config.requestDedupCapacity, config.requestDedupMaxBytes, { it.length },
+                config.requestDedupWindowMs, TimeUnit.MILLISECONDS
+            )
+        } else {
+            null
+        }
+
+    // --- 入站路由 ---
+    // 订阅变化时整体重建，消息到达时只读，按 Topic 层级查找
+    @Volatile
+    private var inboundRouter: TopicTrie<InboundRoute> = buildInboundRouter()
+
+    // --- 下行耗时统计 ---
+    // 按方法记录排队、解析、处理器、响应发布 (至 PUBACK) 四个阶段的耗时
+    private val latencyStats: InboundLatencyStats? =
+        if (config.inboundLatencyStats) InboundLatencyStats() else null
+
+    // --- 响应发布统计 ---
+    // 下行响应交给 MQTT 发送线程后立即返回，PUBACK 由 token 回调确认
+    private val responsesInFlight = AtomicInteger()
+    private val responsesFailed = AtomicLong()
+
+    // --- 上行发布窗口 ---
+    // 在途 (已发出未确认) 消息数不超过 maxInflight，窗口满时调度线程等待空位，而不是收到 MAX_INFLIGHT 异常
+    private val inflightWindow = Semaphore(config.maxInflight)
+    private val publishFailed = AtomicLong()
+
+    // --- 上行优先级调度 ---
+    // 上行消息按 OutboundPriority 分通道排队，由单个调度线程按权重轮询取出，取得窗口位置后发送。
+    // 遥测突发只会占满自己的通道，下行响应与控制面消息仍能在一轮内被发出
+    private val outboundQueue = WeightedLaneQueue<OutboundItem>(
+        OutboundPriority.values().map { it.name.lowercase() }.toTypedArray(),
+        OutboundPriority.values().map { it.weight }.toIntArray(),
+        config.outboundQueueCapacity
+    )
+
+    // --- 上行限速 ---
+    // 按消息类别与设备的令牌桶，由调度线程在发送前预约令牌；超出限速的消息进入延迟队列等到期再发，不丢弃
+    private val classLimiters: Array<TokenBucketLimiter?> = OutboundPriority.values().map { priority ->
+        config.topicClassRateLimits[priority]?.let { TokenBucketLimiter(it.permitsPerSecond, it.burst) }
+    }.toTypedArray()
+    private val deviceLimiter: TokenBucketLimiter? =
+        config.deviceRateLimit?.let { TokenBucketLimiter(it.permitsPerSecond, it.burst) }
+    private val deferredOutbound = DelayQueue<DeferredItem>()
+    private var deferredSeq = 0L // 仅调度线程访问
+
+    private val outboundScheduler = Thread(::runOutboundScheduler, "iot-up-scheduler").apply { isDaemon = true }
+
+    // --- 离线消息日志 ---
+    // 断线期间的上行消息写入磁盘日志，重连后按顺序限速重放，收到 PUBACK 后才从日志中移除
+    private val journal: OutboundJournal? = openJournal()
+    // 重放离线消息时等待单条 PUBACK 的最长时间，超时后停止重放，消息留在日志中
+    private val JOURNAL_ACK_WAIT_SEC: Long = 30
+    // 重放与实时消息共用在途窗口，最多同时有 maxInflight 条重放消息未确认
+    private val journalReplayer: JournalReplayer? = journal?.let {
+        JournalReplayer(
+            it, ::sendJournalRecord, { client.isConnected }, config.maxInflight,
+            if (config.journalReplayRate > 0) 1_000_000_000L / config.journalReplayRate else 0L,
+            TimeUnit.SECONDS.toMillis(JOURNAL_ACK_WAIT_SEC)
+        )
+    }
+    private val journalReplaying = AtomicBoolean(false)
+    // 已连接时实时消息是否仍转入日志: 断线后置位，重放追上重连时的积压 (高水位) 后清除，
+    // 之后实时消息直接发送，不会因积压一直排在日志后面
+    private val journalDiverting = AtomicBoolean(journal?.isEmpty == false)
+    private val journalExecutor: ExecutorService? = journal?.let {
+        Executors.newSingleThreadExecutor { r -> Thread(r, "iot-journal").apply { isDaemon = true } }
+    }
+
+    // --- 属性上报合并 ---
+    // 窗口期内同一设备的属性合并为一条 thing.property.post，同一属性只保留最新值
+    private val coalesceScheduler: ScheduledExecutorService? =
+        if (config.propertyCoalesceWindowMs > 0) {
+            Executors.newSingleThreadScheduledExecutor { r -> Thread(r, "iot-coalesce").apply { isDaemon = true } }
+        } else {
+            null
+        }
+    private val propertyCoalescer: PropertyCoalescer? = coalesceScheduler?.let { scheduler ->
+        PropertyCoalescer(config.propertyCoalesceWindowMs, config.propertyCoalesceMaxKeys, scheduler) { basic, params ->
+            val req = TslRequest().apply {
+                method = TslDefines.UP_METHOD_PROPERTY_POST
+                this.params = params
+            }
+            publishTslReq(basic, req, TslDefines.UP_METHOD_PROPERTY_POST, null, qos = config.propertyPostQos)
+        }
+    }
+
+    // --- payload 压缩 ---
+    // 超过阈值的 TSL 上行 payload 以 gzip 发送；开启时 TSL 入站 payload 按魔数识别并解压，自定义 Topic 不受影响
+    // 解压后大小上限，防止压缩炸弹
+    private val MAX_INFLATED_BYTES: Int = 16 * 1024 * 1024
+    private val compressor = PayloadCompressor(
+        if (config.compressThresholdBytes > 0) config.compressThresholdBytes else Int.MAX_VALUE,
+        config.compressLevel, MAX_INFLATED_BYTES, Runtime.getRuntime().availableProcessors()
+    )
 
     // --- 同步调用机制 ---
     private val syncResponseMap: MutableMap<String, CompletableFuture<TslResponse>> = ConcurrentHashMap()
-    // 设置同步调用超时时间
-    private val SYNC_TIMEOUT_SEC: Long = 10
+    // 所有等待中的请求共用一个时间轮，新建与取消均为 O(1)，不为每个请求占用线程
+    private val syncTimer = HashedWheelTimer("iot-sync-timeout", config.syncTimerTickMs, TimeUnit.MILLISECONDS, 512)
+    // 发送通道已满时发布方最多等待的时间
+    private val PUBLISH_WAIT_SEC: Long = 10
+    // 相同的并发属性查询只发一次请求，按 (deviceId, method, params) 合并
+    private val propertyGetFlights: SingleFlight<String, TslResponse>? =
+        if (config.propertyGetSingleFlight) SingleFlight() else null
+    // 按方法配置了有效期的请求先查缓存，成功的响应写入缓存
+    private val responseCache: ResponseCache<TslResponse>? = config.responseCache?.let {
+        ResponseCache(it.maxEntries, it.methodTtlMs, TimeUnit.MILLISECONDS)
+    }
 
-    // MQTT 客户端 (在 init 块中初始化)
-    private val client: MqttClient
+    // MQTT 客户端 (在 init 块中初始化)，异步客户端: 发布不等待确认，完成情况通过 token 回调获知
+    private val client: MqttAsyncClient
 
     init {
         // 初始化 MQTT 客户端 (使用 Paho 封装)
@@ -59,22 +229,29 @@ class IoTMqttImpl(
         if (!brokerUri.contains("://")) {
             brokerUri = "tcp://$brokerUri" // 默认添加协议头
         }
-        this.client = MqttClient(brokerUri, config.device.deviceId)
+        this.client = MqttAsyncClient(brokerUri, config.device.deviceId)
 
         // 使用可配置实现
         val configurableCallback = ConfigurableMqttCallback(
             onConnectionLost = { cause ->
                 println("连接中断，尝试重连...")
                 onConnectStateCallback(false)
+                journalDiverting.set(journal != null)
+                journalQueuedOutbound()
             },
             onMessageArrived = { topic, message ->
                 onConnectStateCallback(true)
                 //println("处理消息: $topic")
 
-                onMessageCallback(topic, String(message.payload))
+                onMessageCallback(topic, message.payload)
             },
             onDeliveryComplete = { token ->
                 println("消息 ${token?.messageId} 已成功发送")
+            },
+            onConnectComplete = { reconnect, _ ->
+                println(if (reconnect) "重连成功" else "连接成功")
+                onConnectStateCallback(true)
+                startJournalReplay()
             }
         )
 
@@ -89,12 +266,23 @@ class IoTMqttImpl(
         } else if (config.host.contains("iot.seewo.com")) {
             envType.set(2)
         }
+
+        outboundScheduler.start()
     }
 
     fun shutdown() {
+        // 先发出尚在合并窗口内的属性
+        propertyCoalescer?.flushAll()
+        coalesceScheduler?.shutdownNow()
+        stopOutboundScheduler()
         client.disconnect()
         poolDown.shutdownNow()
-        poolUp.shutdownNow()
+        virtualPool?.shutdownNow()
+        syncTimer.stop()
+        // 仍在等待响应的请求不会再有结果
+        syncResponseMap.values.forEach { it.complete(createErrorResponse(IotError.IOT_ERROR_MQTT_EXCEPT, "Client is shut down")) }
+        journalExecutor?.shutdownNow()
+        journal?.close()
     }
 
     // --- 连接与状态 ---
@@ -128,9 +316,12 @@ class IoTMqttImpl(
         // 6. CleanSession 设置
         options.isCleanSession = false
 
-        // 执行连接
+        // 7. 在途消息窗口，与本地窗口保持一致
+        options.maxInflight = config.maxInflight
+
+        // 执行连接 (等待连接结果，保持原有的同步语义)
         println("Connecting to broker...")
-        client.connect(options)
+        client.connect(options).waitForCompletion()
         println("Connected successfully.")
     }
 
@@ -153,87 +344,241 @@ class IoTMqttImpl(
         }
     }
 
-    private fun onMessageCallback(topic: String, payload: String) {
+    private fun onMessageCallback(topic: String, payload: ByteArray) {
+        // 在 MQTT 线程上完成路由，未订阅的 Topic 直接丢弃
+        val route = inboundRouter.match(topic) ?: return
+
+        // 上行请求的响应只是移除等待项并完成 future，直接在 MQTT 线程上处理：
+        // 若投递到设备通道，通道上的处理器同步调用 serviceCall/propertyGet 时会等待排在自己之后的响应，直到超时
+        if (route == InboundRoute.UpResponse) {
+            try {
+                processUpResponse(topic, decodeInbound(topic, payload))
+            } catch (e: Exception) {
+                e.printStackTrace()
+            }
+            return
+        }
+
+        // 同一设备的下行请求、同一自定义 Topic 的消息落在同一通道，保证顺序
+        val laneKey = if (route is InboundRoute.Custom) topic else TopicParser.getDeviceIdFromTopic(topic)
+
+        // 投递到分发通道，避免阻塞 MQTT 线程；虚拟线程模式下每个设备的下行请求在一个虚拟线程上依次执行
+        val task = InboundTask(route, topic, payload)
+        if (route == InboundRoute.DownRequest) {
+            poolDown.executePerKey(laneKey, task)
+        } else {
+            poolDown.execute(laneKey, task)
+        }
+    }
+
+    /**
+     * 入站任务。自定义 Topic 消息在 DROP_OLDEST 策略下可被丢弃；
+     * 下行请求被拒绝时回复 IOT_ERROR_BUSY，让云端尽快感知而不是等待超时。
+     */
+    private inner class InboundTask(
+        private val route: InboundRoute,
+        private val topic: String,
+        private val payload: ByteArray,
+    ) : KeyedLaneExecutor.LaneTask {
+
+        private val enqueuedAt = System.nanoTime()
 
-        // 投递到线程池，避免阻塞 MQTT 线程
-        poolDown.submit {
+        override fun run() {
             try {
-                when {
-                    topic.contains("/rpc/request/") -> processDownRequest(topic, payload)
-                    topic.contains("/up/response/") -> processUpResponse(topic, payload)
-                    else -> processCustomTopic(topic, payload)
+                when (route) {
+                    InboundRoute.DownRequest -> processDownRequest(topic, decodeInbound(topic, payload), enqueuedAt)
+                    // 上行响应在 MQTT 线程上直接处理，不会进入分发通道
+                    InboundRoute.UpResponse -> processUpResponse(topic, decodeInbound(topic, payload))
+                    // 自定义 Topic 的 payload 原样交给回调，格式由业务自行约定
+                    is InboundRoute.Custom -> route.callback.onTopicMessage(topic, payload)
                 }
             } catch (e: Exception) {
                 e.printStackTrace()
             }
         }
+
+        override fun isDroppable(): Boolean = route is InboundRoute.Custom
+
+        override fun onRejected() {
+            if (route == InboundRoute.DownRequest) {
+                // 非阻塞发布，不等待 PUBACK，也不等待窗口空位，可直接在 MQTT 回调线程上回复
+                replyBusy(topic, payload)
+            }
+        }
     }
 
-    // --- 消息路由逻辑 ---
+    /**
+     * 解压 gzip 格式的 TSL 入站 payload，仅在开启压缩时生效；数据损坏时交给后续解析按原样处理
+     */
+    private fun decodeInbound(topic: String, payload: ByteArray): ByteArray {
+        if (config.compressThresholdBytes <= 0 || !PayloadCompressor.isCompressed(payload)) return payload
+        return try {
+            compressor.decompress(payload)
+        } catch (e: IllegalArgumentException) {
+            System.err.println("Failed to decompress payload from $topic: ${e.message}")
+            payload
+        }
+    }
 
-    private fun processDownRequest(topic: String, payload: String) {
+    private fun replyBusy(topic: String, payload: ByteArray) {
         val basic = TslBasic()
-        val req = TslRequest()
-        var res = TslResponse()
+        TslByteDecoder.decodeRequest(decodeInbound(topic, payload), basic, TslRawRequest())
+        val deviceId = TopicParser.getDeviceIdFromTopic(topic).ifEmpty { config.device.deviceId }
+        val resTopic = TopicParser.getDownResTopic(config.device.productKey, deviceId, TopicParser.getMessageIdFromTopic(topic))
+        val res = createErrorResponse(IotError.IOT_ERROR_BUSY, "Inbound queue is full")
+        publishResponse(resTopic, JsonHelper.serializeTslRes(basic, res), mayBlock = false)
+    }
 
-        res.code = TslDefines.CODE_SUCCESS_STRING
-        res.message = "success"
+    /**
+     * 入站队列统计: 容量、当前深度、峰值深度、丢弃/拒绝次数、重投去重次数与去重缓存大小、响应发布情况
+     */
+    fun getInboundStats(): Map<String, Long> =
+        poolDown.stats() + mapOf(
+            "duplicates" to (requestDedup?.hits() ?: 0L),
+            "dedupBytes" to (requestDedup?.bytes() ?: 0L),
+            "dedupOversized" to (requestDedup?.oversized() ?: 0L),
+            "responsesInFlight" to responsesInFlight.get().toLong(),
+            "responsesFailed" to responsesFailed.get(),
+        )
 
-        if (!JsonHelper.deserializeTslReq(payload, basic, req)) {
-            res = createErrorResponse(IotError.IOT_ERROR_DESERIALIZE_FAIL, "Request deserialization failed")
-        } else {
-            basic.deviceId = TopicParser.getDeviceIdFromTopic(topic)
+    /**
+     * 根据当前订阅构建路由表。系统 Topic 使用通配符以覆盖网关下挂子设备。
+     */
+    private fun buildInboundRouter(): TopicTrie<InboundRoute> {
+        val builder = TopicTrie.builder<InboundRoute>()
+            .add("/sys/+/+/rpc/request/+", InboundRoute.DownRequest)
+            .add("/sys/+/+/up/response/+", InboundRoute.UpResponse)
+        customTopicCbs.forEach { (filter, callback) -> builder.add(filter, InboundRoute.Custom(callback)) }
+        return builder.build()
+    }
 
-            var handled = false
-            when {
-                TopicParser.isTheMethod(TslDefines.DOWN_METHOD_PROPERTY_SET, req.method) -> {
-                    propertySetCallback?.onRequest( basic, req)
-                    handled = true
-                }
-                TopicParser.isTheMethod(TslDefines.DOWN_METHOD_PROPERTY_GET, req.method) -> {
-                    propertyGetCallback?.onRequest(basic, req)
-                    handled = true
-                }
-                TopicParser.isTheMethod(TslDefines.DOWN_SERVICE_CONFIG_PUSH, req.method) -> {
-                    handleServiceConfigPush(topic, basic, req, res)
-                    handled = true
-                }
-                TopicParser.isTheMethod(TslDefines.DOWN_SERVICE_UPGRADE, req.method) -> {
-                    handleServiceUpgrade(topic, basic, req, res)
-                    handled = true
-                }
-                req.method.startsWith(TslDefines.DOWN_METHOD_SERVICE) && serviceCallback != null -> {
-                    serviceCallback!!.onRequest( basic, req)
-                    handled = true
+    @Synchronized
+    private fun rebuildInboundRouter() {
+        inboundRouter = buildInboundRouter()
+    }
+
+    /**
+     * 下行请求分阶段耗时: 方法 -> 阶段 (queueWait/decode/handler/publish) -> {count, p50Us, p99Us, p999Us, maxUs}
+     */
+    fun getLatencyStats(): Map<String, Map<String, Map<String, Long>>> = latencyStats?.snapshot() ?: emptyMap()
+
+    // --- 消息路由逻辑 ---
+
+    private fun processDownRequest(topic: String, payload: ByteArray, enqueuedAt: Long) {
+        val basic = TslBasic()
+        val req = TslRawRequest()
+
+        val startedAt = System.nanoTime()
+        val decoded = TslByteDecoder.decodeRequest(payload, basic, req)
+        val decodedAt = System.nanoTime()
+        val method = if (decoded) req.method else InboundLatencyStats.OTHER_METHOD
+        latencyStats?.record(method, Stage.QUEUE_WAIT, startedAt - enqueuedAt)
+        latencyStats?.record(method, Stage.DECODE, decodedAt - startedAt)
+
+        if (!decoded) {
+            sendDownResponse(topic, basic, createErrorResponse(IotError.IOT_ERROR_DESERIALIZE_FAIL, "Request deserialization failed"), method)
+            return
+        }
+        basic.deviceId = TopicParser.getDeviceIdFromTopic(topic)
+
+        // 重投的请求不再调用处理器，等首次处理完成后回放同一份响应
+        val replied = CompletableFuture<String>()
+        if (requestDedup != null && basic.traceId.isNotEmpty()) {
+            val key = TopicParser.getMessageIdFromTopic(topic) + ":" + basic.traceId
+            val previous = requestDedup.claim(key, replied)
+            if (previous != null) {
+                val dispatchThread = Thread.currentThread()
+                previous.thenAccept { resPayload ->
+                    publishResponse(getDownResTopic(topic, basic), resPayload, mayBlock = Thread.currentThread() === dispatchThread)
                 }
+                return
             }
+        }
 
-            if (!handled && res.code == TslDefines.CODE_SUCCESS_STRING) {
-                res = createErrorResponse(IotError.IOT_ERROR_METHOD_NOT_SUPPORT, "Method not supported or callback not set")
+        // 一次哈希查找定位处理器，未注册的方法直接拒绝
+        val handlerStartedAt = System.nanoTime()
+        val stage = invokeHandler(methodHandlers.lookup(req.method), topic, basic, req)
+            ?: CompletableFuture.completedFuture(
+                createErrorResponse(IotError.IOT_ERROR_METHOD_NOT_SUPPORT, "Method not supported or callback not set")
+            )
+
+        // 处理器完成后再回复，异步处理器不会占用分发线程。
+        // 异步完成时回调运行在完成 stage 的线程上 (MQTT 回调线程、超时时间轮线程等)，这些线程不能等待发送通道空位
+        val dispatchThread = Thread.currentThread()
+        stage.whenComplete { res, error ->
+            latencyStats?.record(method, Stage.HANDLER, System.nanoTime() - handlerStartedAt)
+            try {
+                val response = res ?: if (error != null) handlerFailure(error) else successResponse()
+                val resPayload = sendDownResponse(topic, basic, response, method, mayBlock = Thread.currentThread() === dispatchThread)
+                replied.complete(resPayload)
+            } catch (e: Exception) {
+                replied.completeExceptionally(e)
+                e.printStackTrace()
             }
         }
+    }
 
-        // 发送响应
-        val messageId = TopicParser.getMessageIdFromTopic(topic)
-        val deviceId = if (basic.deviceId.isNullOrEmpty()) config.device.deviceId else basic.deviceId
+    /**
+     * 调用下行处理器，返回 null 表示未处理；同步抛出的异常转为失败响应
+     */
+    private fun invokeHandler(
+        handler: DownHandler?,
+        topic: String,
+        basic: TslBasic,
+        req: TslRawRequest,
+    ): CompletionStage<TslResponse>? {
+        if (handler == null) return null
+        return try {
+            handler.handle(topic, basic, req)
+        } catch (e: Exception) {
+            CompletableFuture.completedFuture(handlerFailure(e))
+        }
+    }
 
-        val resTopic = TopicParser.getDownResTopic(config.device.productKey, deviceId, messageId)
+    private fun handlerFailure(error: Throwable): TslResponse {
+        val cause = if (error is CompletionException && error.cause != null) error.cause!! else error
+        return TslResponse.failure(message = cause.message ?: cause.javaClass.simpleName)
+    }
+
+    /**
+     * 回复下行请求，返回已发送的响应内容
+     * @param mayBlock 发送通道已满时是否等待空位，只有分发线程上可以等待
+     */
+    private fun sendDownResponse(
+        topic: String,
+        basic: TslBasic,
+        res: TslResponse,
+        method: String,
+        mayBlock: Boolean = true,
+    ): String {
         val resPayload = JsonHelper.serializeTslRes(basic, res)
-        publishRaw(resTopic, resPayload)
+        val publishStartedAt = System.nanoTime()
+        val published = publishResponse(getDownResTopic(topic, basic), resPayload, mayBlock)
+        if (latencyStats != null) {
+            published.thenRun { latencyStats.record(method, Stage.PUBLISH, System.nanoTime() - publishStartedAt) }
+        }
+        return resPayload
     }
 
-    private fun processUpResponse(topic: String, payload: String) {
+    private fun getDownResTopic(topic: String, basic: TslBasic): String {
+        val messageId = TopicParser.getMessageIdFromTopic(topic)
+        val deviceId = if (basic.deviceId.isNullOrEmpty()) config.device.deviceId else basic.deviceId
+        return TopicParser.getDownResTopic(config.device.productKey, deviceId, messageId)
+    }
+
+    private fun processUpResponse(topic: String, payload: ByteArray) {
         val basic = TslBasic()
         val res = TslResponse()
 
-        // 这里需要先解析出 traceId
-        if (!JsonHelper.deserializeTslReq(payload, basic, TslRequest())) {
+        // 一次遍历同时解析 traceId 与响应内容；解析失败但已拿到 traceId 时也要唤醒等待方
+        val ok = JsonHelper.deserializeTslRes(payload, basic, res)
+        if (basic.traceId.isEmpty()) {
             return
         }
 
         val future = syncResponseMap.remove(basic.traceId)
         if (future != null) {
-            if (JsonHelper.deserializeTslRes(payload, res)) {
+            if (ok) {
                 future.complete(res)
             } else {
                 future.complete(createErrorResponse(IotError.IOT_ERROR_DESERIALIZE_FAIL, "Response deserialization failed"))
@@ -241,17 +586,12 @@ class IoTMqttImpl(
         }
     }
 
-    private fun processCustomTopic(topic: String, payload: String) {
-        val callback = customTopicCbs[topic]
-        callback?.onTopicMessage(topic, payload)
-    }
-
     // --- 内部服务处理 ---
 
-    private fun handleServiceConfigPush(topic: String, basic: TslBasic, req: TslRequest, res: TslResponse) {
+    private fun handleServiceConfigPush(topic: String, basic: TslBasic, req: TslRawRequest, res: TslResponse) {
         if (configCallback != null) {
             val items = ArrayList<TslConfigItem>()
-            if (JsonHelper.deserializeTslConfig(req.params, items)) {
+            if (JsonHelper.deserializeTslConfig(req.paramsString(), items)) {
                 configCallback!!.onConfig(Gson().toJson(items))
                 res.code = TslDefines.CODE_SUCCESS_STRING
                 res.message = "success"
@@ -265,10 +605,10 @@ class IoTMqttImpl(
         }
     }
 
-    private fun handleServiceUpgrade(topic: String, basic: TslBasic, req: TslRequest, res: TslResponse) {
+    private fun handleServiceUpgrade(topic: String, basic: TslBasic, req: TslRawRequest, res: TslResponse) {
         if (upgradeCallback != null) {
             val update = TslUpdate()
-            if (JsonHelper.deserializeTslUpdate(req.params, update)) {
+            if (JsonHelper.deserializeTslUpdate(req.paramsString(), update)) {
                 upgradeCallback!!.onUpgrade(update.versionCode)
                 res.code = TslDefines.CODE_SUCCESS_STRING
                 res.message = "success"
@@ -284,6 +624,12 @@ class IoTMqttImpl(
 
     // --- 辅助函数 ---
 
+    private fun successResponse(): TslResponse {
+        return TslResponse(TslDefines.CODE_SUCCESS_STRING, "success", "")
+    }
+
+    private fun completedSuccess(): CompletionStage<TslResponse> = CompletableFuture.completedFuture(successResponse())
+
     private fun createErrorResponse(error: IotError, message: String): TslResponse {
         val res = TslResponse()
         res.code = error.getCodeStr()
@@ -312,12 +658,41 @@ class IoTMqttImpl(
      * @return 成功返回 true，失败返回 false。
      */
     fun publishMessage(topic: String, payload: String, qos: Int, isRetain: Boolean): Boolean {
-        // 1. 检查连接状态
-        if (!client.isConnected) {
+        return publishMessage(topic, payload.toByteArray(Charsets.UTF_8), qos, isRetain)
+    }
+
+    /**
+     * 发布已编码的消息，payload 直接作为 MqttMessage 的内容，不做任何转换与复制。
+     * 发布完成前调用方不应修改该数组。
+     */
+    fun publishMessage(topic: String, payload: ByteArray, qos: Int, isRetain: Boolean): Boolean {
+        // 发布消息并等待确认 (QoS > 0)，保持原有的同步语义
+        return awaitPublish(publishMessageAsync(topic, payload, qos, isRetain))
+    }
+
+    /**
+     * 发布 ByteBuffer 中 position 到 limit 之间的内容，不改变其 position
+     */
+    fun publishMessage(topic: String, payload: ByteBuffer, qos: Int, isRetain: Boolean): Boolean {
+        return publishMessage(topic, bufferBytes(payload), qos, isRetain)
+    }
+
+    fun publishMessageAsync(topic: String, payload: String, qos: Int, isRetain: Boolean): CompletableFuture<PublishResult> {
+        return publishMessageAsync(topic, payload.toByteArray(Charsets.UTF_8), qos, isRetain)
+    }
+
+    /**
+     * 异步发布消息，不阻塞调用方 (发送通道已满时除外)。
+     * 返回的 future 在 PUBACK/PUBCOMP 到达 (QoS 0 为写出) 或失败时完成，携带 messageId、
+     * 入队到确认的耗时与失败原因。future 在 MQTT 回调线程上完成，后续耗时操作应切换到其他线程。
+     */
+    fun publishMessageAsync(topic: String, payload: ByteArray, qos: Int, isRetain: Boolean): CompletableFuture<PublishResult> {
+        // 1. 检查连接状态 (启用离线日志时断线消息写入日志)
+        if (!client.isConnected && journal == null) {
             // LogTrace(__FILE__, __LINE__, "PublishMessage", 1, "Not connected, cannot publish");
             System.err.println("Publish failed for topic '$topic': Client is not connected.")
             // 注意：这里我们使用 System.err.println 替代了 C++ 的 LogTrace
-            return false
+            return CompletableFuture.completedFuture(PublishResult.failed("Client is not connected"))
         }
 
         // 2. 验证 QoS 参数
@@ -327,86 +702,409 @@ class IoTMqttImpl(
 
             // 假设有一个内部方法来处理异常回调，以模拟 C++ 的 _exceptCallback
             // handleExceptionCallback(topic, -9, "Bad QoS value")
-            return false
+            return CompletableFuture.completedFuture(PublishResult.failed("Bad QoS value ($qos)"))
         }
 
-        return try {
-            // 3. 创建消息
-            val message = org.eclipse.paho.client.mqttv3.MqttMessage(payload.toByteArray(Charsets.UTF_8)).apply {
-                this.qos = qos
-                this.isRetained = isRetain // 设置 Retain 标志
-            }
+        // 3. 创建消息
+        val message = MqttMessage(payload).apply {
+            this.qos = qos
+            this.isRetained = isRetain // 设置 Retain 标志
+        }
 
-            // 4. 发布消息
-            // Paho publish 方法在同步调用时会等待消息发送完成 (QoS > 0)，
-            // 失败则抛出 MqttException。
-            client.publish(topic, message)
+        // 4. 断线或离线消息尚未重放完时写入日志，保证顺序
+        if (shouldJournal()) {
+            return CompletableFuture.completedFuture(
+                if (appendJournal(topic, message)) PublishResult.journaled() else PublishResult.failed("Failed to journal message")
+            )
+        }
 
-            // 如果没有异常抛出，则发布成功
-            true
+        // 5. 进入发送队列
+        return publishAsync(topic, message)
+    }
 
-        } catch (e: org.eclipse.paho.client.mqttv3.MqttException) {
-            // 捕获 MQTT 异常 (对应 C++ 的 mqtt::exception)
-            // handleMQTTException(e, "PublishMessage");
-            System.err.println("MQTT Exception during publish to '$topic'. Reason Code: ${e.reasonCode}, Message: ${e.message}")
-            e.printStackTrace()
-            false
+    /**
+     * 取出 ByteBuffer 剩余内容: 底层数组恰好就是剩余内容时直接使用，否则复制一次 (直接内存、切片等)
+     */
+    private fun bufferBytes(buffer: ByteBuffer): ByteArray {
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0 &&
+            buffer.remaining() == buffer.array().size
+        ) {
+            return buffer.array()
+        }
+        val bytes = ByteArray(buffer.remaining())
+        buffer.duplicate().get(bytes)
+        return bytes
+    }
 
-        } catch (e: Exception) {
-            // 捕获其他标准异常 (对应 C++ 的 std::exception)
-            // LogTrace(__FILE__, __LINE__, "PublishMessage", 1, "Publish failed: " + std::string(e.what()));
-            System.err.println("Unexpected Exception during publish to '$topic': ${e.message}")
-            e.printStackTrace()
-            false
+    /**
+     * TSL 消息发布 (默认 QoS 1)。消息进入发送队列即返回 true，不等待 PUBACK，
+     * 连续上报可流水线发送；发布失败通过日志与 getOutboundStats 反映。
+     * QoS 0 没有 PUBACK 往返，写出后即归还窗口位置，适合可容忍丢失的高频遥测。
+     *
+     * @param journalable 是否可写入离线日志，只有不等待响应的遥测/批量消息可以
+     */
+    private fun publishRaw(
+        topic: String,
+        payload: String,
+        priority: OutboundPriority = OutboundPriority.TELEMETRY,
+        qos: Int = 1,
+        journalable: Boolean = priority >= OutboundPriority.TELEMETRY,
+    ): Boolean {
+        val message = MqttMessage(encodeTslPayload(payload))
+        message.qos = qos
+
+        // 断线或离线消息尚未重放完时写入日志，保证顺序
+        if (journalable && shouldJournal()) {
+            return appendJournal(topic, message)
         }
+
+        val future = publishAsync(topic, message, priority)
+        // 已立即失败 (未连接、队列满等) 返回 false，其余情况视为已受理
+        return !future.isDone || future.getNow(null).isSuccess
     }
 
     /**
-     * 封装 Paho 的 publish 方法，处理异常并返回布尔值。
+     * TSL 上行 payload 编码，开启压缩且超过阈值时 gzip。只用于 TSL Topic，自定义 Topic 的 payload 由业务约定，原样发送
      */
-    private fun publishRaw(topic: String, payload: String): Boolean {
-        // 假设 QoS 为 1 (至少一次)
-        val qos = 1
+    private fun encodeTslPayload(payload: String): ByteArray {
+        val bytes = payload.toByteArray(Charsets.UTF_8)
+        return if (config.compressThresholdBytes > 0) compressor.compress(bytes) else bytes
+    }
 
-        // Paho API 要求 payload 是字节数组
-        val message = MqttMessage(payload.toByteArray(Charsets.UTF_8))
-        message.qos = qos
+    /**
+     * 异步发布: 按优先级放入发送队列后立即返回，由调度线程取得在途窗口位置后交给 MQTT 发送线程。
+     * 返回的 future 在 PUBACK/PUBCOMP 到达 (QoS 0 为写出) 或发布失败时完成。
+     *
+     * @param mayBlock 通道已满时是否等待空位；在 MQTT 回调线程上调用时必须为 false，
+     * 因为窗口位置由同一线程上的 token 回调归还，等待会使调度线程无法前进。
+     */
+    private fun publishAsync(
+        topic: String,
+        message: MqttMessage,
+        priority: OutboundPriority = OutboundPriority.TELEMETRY,
+        mayBlock: Boolean = true,
+        fromJournal: Boolean = false,
+    ): CompletableFuture<PublishResult> {
+        if (!client.isConnected) {
+            System.err.println("Error: Client is not connected. Topic: $topic")
+            publishFailed.incrementAndGet()
+            return CompletableFuture.completedFuture(PublishResult.failed("Client is not connected"))
+        }
 
-        // 如果客户端未连接，Paho publish 也会抛出 MqttException
+        val item = OutboundItem(topic, message, priority, System.nanoTime(), CompletableFuture(), fromJournal)
+        val queued = try {
+            outboundQueue.offer(priority.ordinal, item, if (mayBlock) TimeUnit.SECONDS.toMillis(PUBLISH_WAIT_SEC) else 0L)
+        } catch (e: InterruptedException) {
+            Thread.currentThread().interrupt()
+            false
+        }
+        if (!queued) {
+            System.err.println("Error: Outbound $priority queue is full. Topic: $topic")
+            publishFailed.incrementAndGet()
+            return CompletableFuture.completedFuture(PublishResult.failed("Outbound $priority queue is full"))
+        }
+        return item.result
+    }
+
+    /**
+     * 批量异步发布: 只做一次连接检查，按顺序一次放入同一优先级通道。
+     * 通道满时等待出队，总等待时间不超过 PUBLISH_WAIT_SEC，超时后剩余消息以失败结束。
+     */
+    private fun publishBatchAsync(
+        topic: String,
+        messages: List<MqttMessage>,
+        priority: OutboundPriority,
+    ): List<CompletableFuture<PublishResult>> {
         if (!client.isConnected) {
-            // 可以在这里打印日志或抛出自定义异常
             System.err.println("Error: Client is not connected. Topic: $topic")
-            return false
+            publishFailed.addAndGet(messages.size.toLong())
+            val failed = PublishResult.failed("Client is not connected")
+            return List(messages.size) { CompletableFuture.completedFuture(failed) }
         }
 
-        return try {
-            // Paho publish 方法在同步调用时会等待消息发送成功（QoS > 0），
-            // 如果失败则抛出 MqttException。
-            client.publish(topic, message)
+        val now = System.nanoTime()
+        val items = messages.map { OutboundItem(topic, it, priority, now, CompletableFuture()) }
+        val queued = try {
+            outboundQueue.offerAll(priority.ordinal, items, TimeUnit.SECONDS.toMillis(PUBLISH_WAIT_SEC))
+        } catch (e: InterruptedException) {
+            Thread.currentThread().interrupt()
+            0
+        }
+        if (queued < items.size) {
+            System.err.println("Error: Outbound $priority queue is full, ${items.size - queued} messages dropped. Topic: $topic")
+            publishFailed.addAndGet((items.size - queued).toLong())
+            for (i in queued until items.size) {
+                items[i].result.complete(PublishResult.failed("Outbound $priority queue is full"))
+            }
+        }
+        return items.map { it.result }
+    }
 
-            // 如果执行到这里没有抛出异常，则认为发送成功
-            true
+    /**
+     * 调度线程: 先取得窗口位置再取下一条可发送的消息，窗口满时队列中的消息保持按优先级排队
+     */
+    private fun runOutboundScheduler() {
+        while (true) {
+            try {
+                inflightWindow.acquire()
+            } catch (e: InterruptedException) {
+                return
+            }
+            val item = try {
+                nextOutbound()
+            } catch (e: InterruptedException) {
+                inflightWindow.release()
+                return
+            }
+            sendOutbound(item)
+        }
+    }
+
+    /**
+     * 限速到期的消息优先，其次按权重从通道取。超出限速的消息转入延迟队列；
+     * 延迟队列满时不再从通道取，通道随之填满，发布方因此受到背压。
+     */
+    private fun nextOutbound(): OutboundItem {
+        while (true) {
+            deferredOutbound.poll()?.let { return it.item }
+            val head = deferredOutbound.peek()
+            if (head != null && deferredOutbound.size >= config.outboundQueueCapacity) {
+                return deferredOutbound.take().item
+            }
+            val timeout = head?.getDelay(TimeUnit.NANOSECONDS) ?: Long.MAX_VALUE
+            val item = outboundQueue.poll(timeout) ?: continue
+            val wait = reserveRate(item)
+            if (wait <= 0) return item
+            deferredOutbound.add(DeferredItem(item, System.nanoTime() + wait, deferredSeq++))
+        }
+    }
+
+    /**
+     * 同时预约类别与设备的令牌，返回需要等待的纳秒数
+     */
+    private fun reserveRate(item: OutboundItem): Long {
+        val now = System.nanoTime()
+        val classWait = classLimiters[item.priority.ordinal]?.reserve(item.priority, now) ?: 0L
+        val deviceWait = deviceLimiter?.reserve(deviceOfTopic(item.topic), now) ?: 0L
+        return maxOf(classWait, deviceWait)
+    }
+
+    private fun deviceOfTopic(topic: String): String {
+        if (!topic.startsWith("/sys/")) return config.device.deviceId
+        return TopicParser.getDeviceIdFromTopic(topic).ifEmpty { config.device.deviceId }
+    }
+
+    private fun sendOutbound(item: OutboundItem) {
+        val topic = item.topic
+        try {
+            client.publish(topic, item.message, null, object : IMqttActionListener {
+                override fun onSuccess(asyncActionToken: IMqttToken?) {
+                    inflightWindow.release()
+                    item.complete(true, asyncActionToken?.messageId ?: 0, null)
+                }
+
+                override fun onFailure(asyncActionToken: IMqttToken?, exception: Throwable?) {
+                    inflightWindow.release()
+                    publishFailed.incrementAndGet()
+                    System.err.println("Error publishing to topic $topic: ${exception?.message}")
+                    item.complete(false, asyncActionToken?.messageId ?: 0, exception?.message ?: "Publish failed")
+                }
+            })
         } catch (e: MqttException) {
             // 捕获 MQTT 相关的异常，例如连接丢失、客户端关闭等
+            inflightWindow.release()
+            publishFailed.incrementAndGet()
             System.err.println("Error publishing to topic $topic. Reason: ${e.reasonCode}, Message: ${e.message}")
+            item.complete(false, 0, "Reason: ${e.reasonCode}, Message: ${e.message}")
+        } catch (e: Exception) {
+            inflightWindow.release()
+            publishFailed.incrementAndGet()
+            System.err.println("Unexpected error during publish to $topic: ${e.message}")
             e.printStackTrace()
+            item.complete(false, 0, "Unexpected error: ${e.message}")
+        }
+    }
+
+    /**
+     * 停止调度线程。队列中剩余的遥测/批量消息写入离线日志 (如有)，其余以失败结束
+     */
+    private fun stopOutboundScheduler() {
+        outboundScheduler.interrupt()
+        val remaining = ArrayList<OutboundItem>()
+        deferredOutbound.forEach { remaining.add(it.item) }
+        deferredOutbound.clear()
+        remaining.addAll(outboundQueue.drain())
+        remaining.forEach { journalOrFail(it, "Client is shutting down") }
+    }
+
+    /**
+     * 连接断开时，把仍在排队、尚未发出的遥测/批量消息转入离线日志，重连后随日志重放。
+     * 断线瞬间已直接写入日志的消息可能排在它们之前
+     */
+    private fun journalQueuedOutbound() {
+        if (journal == null) return
+        val queued = ArrayList<OutboundItem>()
+        deferredOutbound.removeIf { deferred ->
+            val journalable = deferred.item.priority >= OutboundPriority.TELEMETRY
+            if (journalable) queued.add(deferred.item)
+            journalable
+        }
+        queued.addAll(outboundQueue.drainLane(OutboundPriority.TELEMETRY.ordinal))
+        queued.addAll(outboundQueue.drainLane(OutboundPriority.BULK.ordinal))
+        queued.sortBy { it.enqueuedAt }
+        queued.forEach { journalOrFail(it, "Connection lost") }
+    }
+
+    /**
+     * 未发出的遥测/批量消息写入离线日志 (如有)，其余以失败结束。
+     * 从日志重放出来的消息仍在日志中，以失败结束即可，不重复写入
+     */
+    private fun journalOrFail(item: OutboundItem, failureReason: String) {
+        val journaled = journal != null && !item.fromJournal && item.priority >= OutboundPriority.TELEMETRY &&
+            journal.append(item.topic, item.message.payload, item.message.qos, item.message.isRetained)
+        if (journaled) {
+            item.result.complete(PublishResult.journaled())
+        } else {
+            publishFailed.incrementAndGet()
+            item.complete(false, 0, failureReason)
+        }
+    }
+
+    private fun awaitPublish(future: CompletableFuture<PublishResult>): Boolean {
+        return try {
+            future.get().isSuccess
+        } catch (e: InterruptedException) {
+            Thread.currentThread().interrupt()
+            false
+        } catch (e: ExecutionException) {
+            false
+        }
+    }
+
+    /**
+     * 非阻塞发布下行响应，分发线程不等待 PUBACK。
+     * 返回的 future 在 PUBACK 到达或发布失败时完成。
+     */
+    private fun publishResponse(topic: String, payload: String, mayBlock: Boolean = true): CompletableFuture<PublishResult> {
+        val message = MqttMessage(payload.toByteArray(Charsets.UTF_8))
+        message.qos = 1
+
+        responsesInFlight.incrementAndGet()
+        return publishAsync(topic, message, OutboundPriority.RPC, mayBlock).whenComplete { result, _ ->
+            responsesInFlight.decrementAndGet()
+            if (result?.isSuccess != true) responsesFailed.incrementAndGet()
+        }
+    }
+
+    /**
+     * 上行发布统计: 窗口大小、当前在途数、失败次数、等待响应的请求数、各优先级通道、限速、离线日志、属性合并、查询合并、响应缓存及压缩情况
+     */
+    fun getOutboundStats(): Map<String, Long> {
+        val stats = linkedMapOf(
+            "window" to config.maxInflight.toLong(),
+            "inFlight" to (config.maxInflight - inflightWindow.availablePermits()).toLong(),
+            "failed" to publishFailed.get(),
+            "syncPending" to syncResponseMap.size.toLong(),
+        )
+        outboundQueue.stats().forEach { (key, value) -> stats["queue" + key.replaceFirstChar { it.uppercase() }] = value }
+        stats["rateDeferred"] = deferredOutbound.size.toLong()
+        OutboundPriority.values().forEach { priority ->
+            val prefix = "rate" + priority.name.lowercase().replaceFirstChar { it.uppercase() }
+            classLimiters[priority.ordinal]?.stats()?.forEach { (key, value) ->
+                stats[prefix + key.replaceFirstChar { it.uppercase() }] = value
+            }
+        }
+        deviceLimiter?.stats()?.forEach { (key, value) -> stats["rateDevice" + key.replaceFirstChar { it.uppercase() }] = value }
+        journal?.stats()?.forEach { (key, value) -> stats["journal" + key.replaceFirstChar { it.uppercase() }] = value }
+        propertyCoalescer?.stats()?.forEach { (key, value) -> stats["coalesce" + key.replaceFirstChar { it.uppercase() }] = value }
+        propertyGetFlights?.stats()?.forEach { (key, value) -> stats["singleFlight" + key.replaceFirstChar { it.uppercase() }] = value }
+        responseCache?.stats()?.forEach { (key, value) -> stats["cache" + key.replaceFirstChar { it.uppercase() }] = value }
+        stats.putAll(compressor.stats())
+        return stats
+    }
+
+    // --- 离线消息日志 ---
+
+    private fun openJournal(): OutboundJournal? {
+        if (config.journalDir.isEmpty()) return null
+        return try {
+            OutboundJournal(File(config.journalDir), config.journalSegmentBytes, config.journalMaxBytes, config.journalTtlMs)
+        } catch (e: IOException) {
+            System.err.println("Failed to open outbound journal at ${config.journalDir}: ${e.message}")
+            null
+        }
+    }
+
+    private fun shouldJournal(): Boolean {
+        if (journal == null) return false
+        return !client.isConnected || journalDiverting.get()
+    }
+
+    private fun appendJournal(topic: String, message: MqttMessage): Boolean {
+        val stored = journal!!.append(topic, message.payload, message.qos, message.isRetained)
+        if (!stored) {
+            System.err.println("Failed to journal message for topic $topic")
+        }
+        // 已连接说明正在重放，确保重放任务在运行
+        startJournalReplay()
+        return stored
+    }
+
+    private fun startJournalReplay() {
+        val journal = journal ?: return
+        if (!client.isConnected) return
+        if (journal.isEmpty) {
+            // 没有积压，实时消息直接发送
+            journalDiverting.set(false)
+            return
+        }
+        if (!journalReplaying.compareAndSet(false, true)) return
+        try {
+            journalExecutor!!.execute { replayJournal(journal, journalReplayer!!) }
+        } catch (e: RejectedExecutionException) {
+            journalReplaying.set(false)
+        }
+    }
+
+    /**
+     * 按写入顺序限速重放离线消息，窗口内流水线发出，每条收到 PUBACK 后才从日志中移除。
+     * 断线、发布失败或确认超时时停止，未确认的消息留在日志中，等下次连接或有新消息写入时重新发出。
+     * 追上重连时的积压后不再把实时消息转入日志。
+     */
+    private fun replayJournal(journal: OutboundJournal, replayer: JournalReplayer) {
+        val drained = try {
+            replayer.replay { journalDiverting.set(false) }
+        } catch (e: InterruptedException) {
             false
         } catch (e: Exception) {
-            // 捕获其他运行时异常
-            System.err.println("Unexpected error during publish to $topic: ${e.message}")
             e.printStackTrace()
             false
+        } finally {
+            journalReplaying.set(false)
         }
+        // 重放结束前后可能有新消息写入，补一次检查；发布失败时不立即重试，避免反复重发同一条
+        if (drained && client.isConnected && !journal.isEmpty) startJournalReplay()
     }
 
+    private fun sendJournalRecord(record: OutboundJournal.Record): CompletableFuture<PublishResult> {
+        val message = MqttMessage(record.payload).apply {
+            qos = record.qos
+            isRetained = record.retained
+        }
+        return publishAsync(record.topic, message, OutboundPriority.BULK, fromJournal = true)
+    }
 
     private fun publishTslReq(
         basic: TslBasic,
         req: TslRequest,
         methodPrefix: String,
         future: CompletableFuture<TslResponse>?,
+        priority: OutboundPriority = if (future != null) OutboundPriority.RPC else OutboundPriority.TELEMETRY,
+        qos: Int = 1,
     ): Boolean {
-        if (!isConnected()) {
+        // 需要等待响应的请求与控制面消息不写入离线日志，直接进入发送队列，断线时直接失败
+        val journalable = future == null && priority >= OutboundPriority.TELEMETRY
+        if (!isConnected() && (!journalable || journal == null)) {
             future?.complete(
                 createErrorResponse(
                     IotError.IOT_ERROR_IOT_ISNOT_CONNECT,
@@ -436,7 +1134,7 @@ class IoTMqttImpl(
             return false
         }
 
-        return publishRaw(topic, payload)
+        return publishRaw(topic, payload, priority, qos, journalable)
     }
 
     // --- Public API 实现 ---
@@ -450,7 +1148,7 @@ class IoTMqttImpl(
             method = "basic.post"
             params = "{\"version\":\"$version\"}"
         }
-        publishTslReq(basic, req, TslDefines.UP_METHOD_BASIC_POST, null)
+        publishTslReq(basic, req, TslDefines.UP_METHOD_BASIC_POST, null, OutboundPriority.CONTROL)
     }
 
     fun postDeviceName(deviceName: String) {
@@ -462,7 +1160,7 @@ class IoTMqttImpl(
             method = "basic.post"
             params = "{\"deviceName\":\"$deviceName\"}"
         }
-        publishTslReq(basic, req, TslDefines.UP_METHOD_BASIC_POST, null)
+        publishTslReq(basic, req, TslDefines.UP_METHOD_BASIC_POST, null, OutboundPriority.CONTROL)
     }
 
     fun postConfigVersion(configKeys: List<TslConfigKey>) {
@@ -475,17 +1173,76 @@ class IoTMqttImpl(
             // 简单序列化 configKeys 为 JSON 字符串 (List -> JsonArray)
             params = Gson().toJson(configKeys)
         }
-        publishTslReq(basic, req, TslDefines.UP_METHOD_CONFIG_POST, null)
+        publishTslReq(basic, req, TslDefines.UP_METHOD_CONFIG_POST, null, OutboundPriority.CONTROL)
     }
 
     fun setConfigCallback(callback: OnTslConfig?) { this.configCallback = callback }
     fun setUpgradeCallback(callback: OnTslUpgrade?) { this.upgradeCallback = callback }
-    fun setPropertySetCallback(callback: OnTslRequest?) { this.propertySetCallback = callback }
-    fun setPropertyGetCallback(callback: OnTslRequest?) { this.propertyGetCallback = callback }
-    fun setServiceCallback(callback: OnTslRequest?) { this.serviceCallback = callback }
+    fun setPropertySetCallback(callback: OnTslRequest?) { this.propertySetCallback = callback?.let(::adaptRequest) }
+    fun setPropertyGetCallback(callback: OnTslRequest?) { this.propertyGetCallback = callback?.let(::adaptRequest) }
+    fun setServiceCallback(callback: OnTslRequest?) { this.serviceCallback = callback?.let(::adaptRequest) }
+
+    // 字节形式回调: params 以原始 payload 区间提供，不做拷贝
+    fun setPropertySetCallback(callback: OnTslRawRequest?) { this.propertySetCallback = callback?.let(::adaptRawRequest) }
+    fun setPropertyGetCallback(callback: OnTslRawRequest?) { this.propertyGetCallback = callback?.let(::adaptRawRequest) }
+    fun setServiceCallback(callback: OnTslRawRequest?) { this.serviceCallback = callback?.let(::adaptRawRequest) }
+
+    // 异步回调: 以 stage 的结果回复云端，stage 完成前不占用分发线程
+    fun setPropertySetCallback(callback: OnTslAsyncRequest?) { this.propertySetCallback = callback?.let(::adaptAsyncRequest) }
+    fun setPropertyGetCallback(callback: OnTslAsyncRequest?) { this.propertyGetCallback = callback?.let(::adaptAsyncRequest) }
+    fun setServiceCallback(callback: OnTslAsyncRequest?) { this.serviceCallback = callback?.let(::adaptAsyncRequest) }
+
+    /**
+     * 为具体方法 (如 thing.service.reboot) 注册处理器，优先于 serviceCallback 等通用回调；
+     * callback 为 null 时取消注册。内置的 configPush / upgrade 不能被覆盖，全名与简称 (如 configPush) 均会抛出
+     * IllegalArgumentException。
+     */
+    fun setMethodCallback(method: String, callback: OnTslRequest?) {
+        registerMethodHandler(method, callback?.let(::adaptRequest))
+    }
+
+    fun setMethodCallback(method: String, callback: OnTslRawRequest?) {
+        registerMethodHandler(method, callback?.let(::adaptRawRequest))
+    }
+
+    fun setMethodCallback(method: String, callback: OnTslAsyncRequest?) {
+        registerMethodHandler(method, callback?.let(::adaptAsyncRequest))
+    }
+
+    private fun registerMethodHandler(method: String, handler: RequestHandler?) {
+        // 内置方法的全名与简称由注册表拒绝
+        methodHandlers.register(method, handler?.let { h -> DownHandler { _, basic, req -> h.handle(basic, req) } })
+    }
+
+    private fun adaptRequest(callback: OnTslRequest) = RequestHandler { basic, req ->
+        callback.onRequest(basic, req.toTslRequest())
+        completedSuccess()
+    }
+
+    private fun adaptRawRequest(callback: OnTslRawRequest) = RequestHandler { basic, req ->
+        callback.onRequest(basic, req)
+        completedSuccess()
+    }
+
+    private fun adaptAsyncRequest(callback: OnTslAsyncRequest) = RequestHandler { basic, req ->
+        callback.onRequest(basic, req.toTslRequest())
+    }
 
     fun subscribeCustom(topic: String, callback: OnCustomTopic): Boolean {
+        return subscribeCustom(topic, OnCustomTopicRaw { t, payload ->
+            callback.onTopicMessage(t, String(payload, Charsets.UTF_8))
+        })
+    }
+
+    fun subscribeCustom(topic: String, callback: OnCustomTopicRaw): Boolean {
         customTopicCbs[topic] = callback
+        try {
+            rebuildInboundRouter()
+        } catch (e: IllegalArgumentException) {
+            // 非法 Filter 不能留在表中，否则后续每次重建都会失败
+            customTopicCbs.remove(topic)
+            throw e
+        }
         return if (isConnected()) {
             client.subscribe(topic, 2)
              false
@@ -495,91 +1252,259 @@ class IoTMqttImpl(
     }
 
     fun propertyPost(basic: TslBasic, req: TslRequest): Boolean {
-        return publishTslReq(basic, req, TslDefines.UP_METHOD_PROPERTY_POST, null)
+        return propertyPost(basic, req, config.propertyPostQos)
+    }
+
+    fun propertyPost(basic: TslBasic, req: TslRequest, qos: Int): Boolean {
+        if (!isValidQos(qos)) return false
+        val coalescer = propertyCoalescer ?: return publishTslReq(basic, req, TslDefines.UP_METHOD_PROPERTY_POST, null, qos = qos)
+        // 开启合并时先进入合并窗口 (合并后按配置的 QoS 发出)
+        if (qos == config.propertyPostQos && coalescer.offer(basic, req.params)) {
+            return true
+        }
+        // 无法合并的 params 或指定了其他 QoS 时直接发送，发送前先发出该设备窗口内的属性，保证新值最后到达
+        return coalescer.sendDirect(basic.deviceId) {
+            publishTslReq(basic, req, TslDefines.UP_METHOD_PROPERTY_POST, null, qos = qos)
+        }
     }
 
     fun eventPost(basic: TslBasic, req: TslRequest): Boolean {
-        return publishTslReq(basic, req, TslDefines.UP_METHOD_EVENT_POST, null)
+        return eventPost(basic, req, config.eventPostQos)
+    }
+
+    fun eventPost(basic: TslBasic, req: TslRequest, qos: Int): Boolean {
+        if (!isValidQos(qos)) return false
+        return publishTslReq(basic, req, TslDefines.UP_METHOD_EVENT_POST, null, qos = qos)
+    }
+
+    fun eventPosts(basic: TslBasic, reqs: List<TslRequest>, aggregate: Boolean): List<Boolean> {
+        return eventPosts(basic, reqs, aggregate, config.eventPostQos)
+    }
+
+    /**
+     * 批量事件上报，返回每条事件是否被受理。
+     * 只做一次连接检查与一次批量序列化；aggregate 为 true 时聚合为一条 thing.event.batch.post
+     * (需云端支持)，否则按顺序流水线发出，每条事件使用独立的 traceId，整批一次放入发送通道或写入离线日志。
+     */
+    fun eventPosts(basic: TslBasic, reqs: List<TslRequest>, aggregate: Boolean, qos: Int): List<Boolean> {
+        if (reqs.isEmpty()) return emptyList()
+        if (!isValidQos(qos) || (!isConnected() && journal == null)) {
+            return List(reqs.size) { false }
+        }
+
+        for (req in reqs) {
+            if (!req.method.startsWith(TslDefines.UP_METHOD_EVENT_POST)) {
+                req.method = TslDefines.UP_METHOD_EVENT_POST + req.method
+            }
+        }
+        val deviceId = if (basic.deviceId.isNullOrEmpty()) config.device.deviceId else basic.deviceId
+        val topic = TopicParser.getUpReqTopic(config.device.productKey, deviceId)
+
+        if (aggregate) {
+            if (basic.traceId.isEmpty()) basic.traceId = Utils.GetRandomID()
+            val accepted = BooleanArray(reqs.size)
+            val payload = JsonHelper.serializeTslEventBatch(basic, reqs, accepted)
+            val published = payload.isNotEmpty() && publishRaw(topic, payload, OutboundPriority.BULK, qos)
+            return accepted.map { it && published }
+        }
+
+        // 调用方给定 traceId 时按序号派生，便于关联；否则逐条生成
+        val traceIds = List(reqs.size) { i ->
+            if (basic.traceId.isEmpty()) Utils.GetRandomID() else "${basic.traceId}-$i"
+        }
+        val payloads = JsonHelper.serializeTslUpBatch(basic, traceIds, reqs)
+        val messages = payloads.mapNotNull { payload ->
+            payload?.let { MqttMessage(encodeTslPayload(it)).apply { this.qos = qos } }
+        }
+
+        // 连接与日志状态只判断一次，整批写入日志或整批放入发送通道
+        val published: List<Boolean> = if (shouldJournal()) {
+            synchronized(journal!!) { messages.map { appendJournal(topic, it) } }
+        } else {
+            publishBatchAsync(topic, messages, OutboundPriority.BULK).map { future ->
+                // 已立即失败 (未连接、队列满等) 为 false，其余情况视为已受理
+                !future.isDone || future.getNow(null).isSuccess
+            }
+        }
+        var next = 0
+        return payloads.map { payload -> payload != null && published[next++] }
+    }
+
+    private fun isValidQos(qos: Int): Boolean {
+        if (qos in 0..2) return true
+        System.err.println("Bad QoS value ($qos). Must be 0, 1, or 2.")
+        return false
     }
 
     fun publishCustom(topic: String, traceId: String, params: String): Boolean {
-        return publishRaw(topic, params)
+        return publishCustom(topic, traceId, params.toByteArray(Charsets.UTF_8))
+    }
+
+    fun publishCustom(topic: String, traceId: String, params: ByteArray): Boolean {
+        // 自定义 Topic 保持同步语义，等待 PUBACK 后返回
+        return awaitPublish(publishCustomAsync(topic, traceId, params))
+    }
+
+    fun publishCustom(topic: String, traceId: String, params: ByteBuffer): Boolean {
+        return publishCustom(topic, traceId, bufferBytes(params))
+    }
+
+    fun publishCustomAsync(topic: String, traceId: String, params: String): CompletableFuture<PublishResult> {
+        return publishCustomAsync(topic, traceId, params.toByteArray(Charsets.UTF_8))
+    }
+
+    /**
+     * 异步发布自定义 Topic (QoS 1)，future 在 PUBACK 到达或失败时完成。
+     * payload 原样发送，不做压缩: 自定义 Topic 的格式由业务与对端约定
+     */
+    fun publishCustomAsync(topic: String, traceId: String, params: ByteArray): CompletableFuture<PublishResult> {
+        val message = MqttMessage(params)
+        message.qos = 1
+        return publishAsync(topic, message)
     }
 
     // --- 同步调用实现 ---
+    // 请求发出后不占用线程等待，响应由 processUpResponse 直接完成 future，超时由 syncTimer 统一处理
 
-    fun propertyGet(basic: TslBasic, req: TslRequest, res: TslResponse): Boolean {
-        return try {
-            poolUp.submit(Callable {
-                val future = CompletableFuture<TslResponse>()
-                basic.traceId = Utils.GetRandomID()
-
-                if (!publishTslReq(basic, req, TslDefines.UP_METHOD_PROPERTY_GET, future)) {
-                    val err = createErrorResponse(IotError.IOT_ERROR_PUBLISH_FAIL, "Failed to publish")
-                    res.code = err.code
-                    res.message = err.message
-                    return@Callable false
-                }
+    fun propertyGetAsync(basic: TslBasic, req: TslRequest): CompletableFuture<TslResponse> {
+        return propertyGetAsync(basic, req, CallOptions.defaultOptions())
+    }
 
-                try {
-                    val result = future.get(SYNC_TIMEOUT_SEC, TimeUnit.SECONDS)
-                    res.code = result.code
-                    res.message = result.message
-                    res.data = result.data
-                    result.code == TslDefines.CODE_SUCCESS_STRING
-                } catch (e: TimeoutException) {
-                    syncResponseMap.remove(basic.traceId)
-                    val err = createTimeoutResponse(basic)
-                    res.code = err.code
-                    res.message = err.message
-                    false
-                } catch (e: Exception) {
-                    val err = createErrorResponse(IotError.IOT_ERROR_MQTT_EXCEPT, e.message ?: "Unknown MQTT error")
-                    res.code = err.code
-                    res.message = err.message
-                    false
-                }
-            }).get()
-        } catch (e: Exception) {
-            false
+    /**
+     * 开启 propertyGetSingleFlight 时，进行中的相同查询直接共享其响应，超时以首个调用方的 options 为准
+     */
+    fun propertyGetAsync(basic: TslBasic, req: TslRequest, options: CallOptions): CompletableFuture<TslResponse> {
+        return cachedRequestAsync(basic, req, TslDefines.UP_METHOD_PROPERTY_GET) { key ->
+            val flights = propertyGetFlights
+            if (flights == null) requestAsync(basic, req, TslDefines.UP_METHOD_PROPERTY_GET, options)
+            else flights.execute(key) { requestAsync(basic, req, TslDefines.UP_METHOD_PROPERTY_GET, options) }
         }
     }
 
+    fun serviceCallAsync(basic: TslBasic, req: TslRequest): CompletableFuture<TslResponse> {
+        return serviceCallAsync(basic, req, CallOptions.defaultOptions())
+    }
+
+    fun serviceCallAsync(basic: TslBasic, req: TslRequest, options: CallOptions): CompletableFuture<TslResponse> {
+        return cachedRequestAsync(basic, req, TslDefines.UP_METHOD_SERVICE) {
+            requestAsync(basic, req, TslDefines.UP_METHOD_SERVICE, options)
+        }
+    }
+
+    fun propertyGet(basic: TslBasic, req: TslRequest, res: TslResponse): Boolean {
+        return awaitResponse(propertyGetAsync(basic, req), res)
+    }
+
+    fun propertyGet(basic: TslBasic, req: TslRequest, res: TslResponse, options: CallOptions): Boolean {
+        return awaitResponse(propertyGetAsync(basic, req, options), res)
+    }
+
     fun serviceCall(basic: TslBasic, req: TslRequest, res: TslResponse): Boolean {
-        return try {
-            poolUp.submit(Callable {
-                val future = CompletableFuture<TslResponse>()
-                basic.traceId = Utils.GetRandomID()
-
-                if (!publishTslReq(basic, req, TslDefines.UP_METHOD_SERVICE, future)) {
-                    val err = createErrorResponse(IotError.IOT_ERROR_PUBLISH_FAIL, "Failed to publish")
-                    res.code = err.code
-                    res.message = err.message
-                    return@Callable false
-                }
+        return awaitResponse(serviceCallAsync(basic, req), res)
+    }
+
+    fun serviceCall(basic: TslBasic, req: TslRequest, res: TslResponse, options: CallOptions): Boolean {
+        return awaitResponse(serviceCallAsync(basic, req, options), res)
+    }
+
+    /**
+     * 移除某个方法 (完整方法名) 的缓存响应，云端数据变化时调用
+     */
+    fun invalidateResponseCache(method: String) {
+        responseCache?.invalidate(method)
+    }
+
+    /**
+     * 清空响应缓存
+     */
+    fun invalidateResponseCache() {
+        responseCache?.invalidateAll()
+    }
+
+    /**
+     * 配置了缓存的方法先查缓存，命中时返回响应的副本；未命中时发出请求并缓存成功的响应。
+     * 未命中时返回的就是请求本身的 future，取消照常生效。
+     * @param request 以 (deviceId, method, params) 组成的请求 Key 发出请求
+     */
+    private fun cachedRequestAsync(
+        basic: TslBasic,
+        req: TslRequest,
+        methodPrefix: String,
+        request: (String) -> CompletableFuture<TslResponse>,
+    ): CompletableFuture<TslResponse> {
+        val method = if (req.method.startsWith(methodPrefix)) req.method else methodPrefix + req.method
+        val deviceId = if (basic.deviceId.isNullOrEmpty()) config.device.deviceId else basic.deviceId
+        val key = deviceId + '\u0000' + method + '\u0000' + req.params
+
+        val cache = responseCache
+        if (cache == null || !cache.isCacheable(method)) return request(key)
+        cache.get(key, System.nanoTime())?.let { return CompletableFuture.completedFuture(copyResponse(it)) }
 
-                try {
-                    val result = future.get(SYNC_TIMEOUT_SEC, TimeUnit.SECONDS)
-                    res.code = result.code
-                    res.message = result.message
-                    res.data = result.data
-                    result.code == TslDefines.CODE_SUCCESS_STRING
-                } catch (e: TimeoutException) {
-                    syncResponseMap.remove(basic.traceId)
-                    val err = createTimeoutResponse(basic)
-                    res.code = err.code
-                    res.message = err.message
-                    false
-                } catch (e: Exception) {
-                    val err = createErrorResponse(IotError.IOT_ERROR_MQTT_EXCEPT, e.message ?: "Unknown MQTT error")
-                    res.code = err.code
-                    res.message = err.message
-                    false
+        val generation = cache.generation(method)
+        val future = request(key)
+        future.whenComplete { res, _ ->
+            if (res != null && res.code == TslDefines.CODE_SUCCESS_STRING) {
+                cache.put(method, key, copyResponse(res), generation, System.nanoTime())
+            }
+        }
+        return future
+    }
+
+    private fun copyResponse(res: TslResponse): TslResponse = TslResponse(res.code, res.message, res.data)
+
+    /**
+     * 发出需要响应的请求。future 由响应、超时或发布失败完成；调用方取消 future 时同时移除等待项。
+     */
+    private fun requestAsync(
+        basic: TslBasic,
+        req: TslRequest,
+        methodPrefix: String,
+        options: CallOptions,
+    ): CompletableFuture<TslResponse> {
+        val future = CompletableFuture<TslResponse>()
+        val traceId = Utils.GetRandomID()
+        basic.traceId = traceId
+
+        if (!publishTslReq(basic, req, methodPrefix, future)) {
+            // 未连接、序列化失败时 future 已完成，此处只补上发布失败的情况
+            syncResponseMap.remove(traceId, future)
+            future.complete(createErrorResponse(IotError.IOT_ERROR_PUBLISH_FAIL, "Failed to publish"))
+            return future
+        }
+
+        val timeoutMs = if (options.timeoutMs > 0) options.timeoutMs else config.syncTimeoutMs
+        val timeout = try {
+            syncTimer.newTimeout({
+                if (syncResponseMap.remove(traceId, future)) {
+                    future.complete(createTimeoutResponse(basic))
                 }
-            }).get()
+            }, timeoutMs, TimeUnit.MILLISECONDS)
+        } catch (e: RejectedExecutionException) {
+            syncResponseMap.remove(traceId, future)
+            future.complete(createErrorResponse(IotError.IOT_ERROR_MQTT_EXCEPT, "Client is shut down"))
+            return future
+        }
+        future.whenComplete { _, _ ->
+            timeout.cancel()
+            syncResponseMap.remove(traceId, future)
+        }
+        return future
+    }
+
+    private fun awaitResponse(future: CompletableFuture<TslResponse>, res: TslResponse): Boolean {
+        val result = try {
+            future.get()
+        } catch (e: InterruptedException) {
+            Thread.currentThread().interrupt()
+            future.cancel(false)
+            createErrorResponse(IotError.IOT_ERROR_MQTT_EXCEPT, "Interrupted")
         } catch (e: Exception) {
-            false
+            createErrorResponse(IotError.IOT_ERROR_MQTT_EXCEPT, e.message ?: "Unknown MQTT error")
         }
+        res.code = result.code
+        res.message = result.message
+        res.data = result.data
+        return result.code == TslDefines.CODE_SUCCESS_STRING
     }
 
     // --- 网关类设备 ---
@@ -589,7 +1514,7 @@ class IoTMqttImpl(
             method = "sub.connect"
             params = Gson().toJson(dev)
         }
-        return publishTslReq(basic, req, TslDefines.UP_METHOD_SUB_CONNECT, null)
+        return publishTslReq(basic, req, TslDefines.UP_METHOD_SUB_CONNECT, null, OutboundPriority.CONTROL)
     }
 
     fun offlineSubDevice(basic: TslBasic, dev: DeviceAuth): Boolean {
@@ -597,7 +1522,7 @@ class IoTMqttImpl(
             method = "sub.disconnect"
             params = Gson().toJson(dev)
         }
-        return publishTslReq(basic, req, TslDefines.UP_METHOD_SUB_DISCONNECT, null)
+        return publishTslReq(basic, req, TslDefines.UP_METHOD_SUB_DISCONNECT, null, OutboundPriority.CONTROL)
     }
 
     fun addSubDevice(basic: TslBasic, dev: DeviceAuth): Boolean {
@@ -605,7 +1530,7 @@ class IoTMqttImpl(
             method = "sub.add"
             params = Gson().toJson(dev)
         }
-        return publishTslReq(basic, req, TslDefines.UP_METHOD_SUB_ADD, null)
+        return publishTslReq(basic, req, TslDefines.UP_METHOD_SUB_ADD, null, OutboundPriority.CONTROL)
     }
 
     fun delSubDevice(basic: TslBasic, dev: DeviceAuth): Boolean {
@@ -613,7 +1538,7 @@ class IoTMqttImpl(
             method = "sub.del"
             params = Gson().toJson(dev)
         }
-        return publishTslReq(basic, req, TslDefines.UP_METHOD_SUB_DEL, null)
+        return publishTslReq(basic, req, TslDefines.UP_METHOD_SUB_DEL, null, OutboundPriority.CONTROL)
     }
 
     fun getSubDevice(basic: TslBasic, devs: List<DeviceAuth>): Boolean {
@@ -636,6 +1561,57 @@ class IoTMqttImpl(
 
 
 
+/**
+ * 下行方法处理器，返回 null 表示未处理 (回复方法不支持)，否则在 stage 完成后回复其结果
+ */
+private fun interface DownHandler {
+    fun handle(topic: String, basic: TslBasic, req: TslRawRequest): CompletionStage<TslResponse>?
+}
+
+/**
+ * 适配后的下行请求回调
+ */
+private fun interface RequestHandler {
+    fun handle(basic: TslBasic, req: TslRawRequest): CompletionStage<TslResponse>
+}
+
+/**
+ * 入站消息路由目标
+ */
+private sealed class InboundRoute {
+    object DownRequest : InboundRoute()
+    object UpResponse : InboundRoute()
+    class Custom(val callback: OnCustomTopicRaw) : InboundRoute()
+}
+
+/**
+ * 等待调度发送的上行消息
+ */
+private class OutboundItem(
+    val topic: String,
+    val message: MqttMessage,
+    val priority: OutboundPriority,
+    val enqueuedAt: Long,
+    val result: CompletableFuture<PublishResult>,
+    val fromJournal: Boolean = false, // 从离线日志重放，消息仍在日志中
+) {
+    fun complete(success: Boolean, messageId: Int, failureReason: String?) {
+        result.complete(PublishResult(success, messageId, System.nanoTime() - enqueuedAt, failureReason))
+    }
+}
+
+/**
+ * 超出限速、等待令牌的上行消息，到期时间相同时按进入顺序发出
+ */
+private class DeferredItem(val item: OutboundItem, val readyAt: Long, val seq: Long) : Delayed {
+    override fun getDelay(unit: TimeUnit): Long = unit.convert(readyAt - System.nanoTime(), TimeUnit.NANOSECONDS)
+
+    override fun compareTo(other: Delayed): Int {
+        other as DeferredItem
+        return if (readyAt != other.readyAt) readyAt.compareTo(other.readyAt) else seq.compareTo(other.seq)
+    }
+}
+
 /**
  * 可配置的 MQTT 回调类，支持自定义处理函数
  */
@@ -650,8 +1626,13 @@ class ConfigurableMqttCallback(
     },
     private val onDeliveryComplete: (IMqttDeliveryToken?) -> Unit = { token ->
         println("消息传递完成: ID=${token?.messageId}")
+    },
+    private val onConnectComplete: (Boolean, String?) -> Unit = { _, _ -> }
+) : MqttCallbackExtended {
+
+    override fun connectComplete(reconnect: Boolean, serverURI: String?) {
+        onConnectComplete(reconnect, serverURI)
     }
-) : MqttCallback {
 
     override fun connectionLost(cause: Throwable?) {
         onConnectionLost(cause)
@@ -2,15 +2,21 @@ package com.cvte.ciot.core.mqtt
 
 import com.cvte.ciot.core.callback.IotLogCallback
 import com.cvte.ciot.core.callback.OnTslDownCallback
+import com.cvte.ciot.core.callback.OnTslDownAsyncCallback
 import com.cvte.ciot.core.callback.NativeCallback
 import com.cvte.ciot.core.callback.OnConnectState
+import com.cvte.ciot.core.model.CallOptions
 import com.cvte.ciot.core.model.DeviceAuth
 import com.cvte.ciot.core.model.IoTConfig
+import com.cvte.ciot.core.model.PublishResult
+import com.cvte.ciot.core.model.ResponseCacheConfig
 import com.cvte.ciot.core.model.SSLOption
 import com.cvte.ciot.core.model.tsl.TslBasic
 import com.cvte.ciot.core.model.tsl.TslDefines
 import com.cvte.ciot.core.model.tsl.TslRequest
 import com.cvte.ciot.core.model.tsl.TslResponse
+import java.nio.ByteBuffer
+import java.util.concurrent.CompletableFuture
 import java.util.concurrent.locks.Lock
 import java.util.concurrent.locks.ReentrantReadWriteLock
 
@@ -38,6 +44,10 @@ class Iot {
          get() = false
 
     private var mqttClient: IoTMqtt? = null
+
+    // propertyGet/serviceCall 的响应缓存配置，在 initMqtt 之前设置
+    @Volatile
+    var responseCache: ResponseCacheConfig? = null
     private val lock = ReentrantReadWriteLock()
     private val readLock = lock.readLock()
     private val writeLock = lock.writeLock()
@@ -60,6 +70,7 @@ class Iot {
             val config = IoTConfig().apply {
                 this.host = "$host:$port"
                 this.device = deviceAuth
+                this.responseCache = this@Iot.responseCache
                 this.onConnectState = OnConnectState { isConnected ->
                     connectCallback?.onConnectState(isConnected)
                 }
@@ -146,13 +157,65 @@ class Iot {
         }
     }
 
+    fun eventPost(basic: TslBasic, req: TslRequest, qos: Int): Boolean {
+        readLock.lock()
+        try {
+            mqttClient?.let {
+                logDebug("eventPost called with qos $qos")
+                return it.EventPost(basic, req, qos)
+            }
+            return false
+        } catch (e: Exception) {
+            logError("eventPost error: ${e.message}")
+            return false
+        } finally {
+            readLock.unlock()
+        }
+    }
+
+    fun eventPosts(basic: TslBasic, reqs: List<TslRequest>, aggregate: Boolean): List<Boolean> {
+        readLock.lock()
+        try {
+            mqttClient?.let {
+                logDebug("eventPosts called with ${reqs.size} events")
+                return it.EventPosts(basic, reqs, aggregate)
+            }
+            return List(reqs.size) { false }
+        } catch (e: Exception) {
+            logError("eventPosts error: ${e.message}")
+            return List(reqs.size) { false }
+        } finally {
+            readLock.unlock()
+        }
+    }
+
+    fun eventPosts(basic: TslBasic, reqs: List<TslRequest>, aggregate: Boolean, qos: Int): List<Boolean> {
+        readLock.lock()
+        try {
+            mqttClient?.let {
+                logDebug("eventPosts called with ${reqs.size} events, qos $qos")
+                return it.EventPosts(basic, reqs, aggregate, qos)
+            }
+            return List(reqs.size) { false }
+        } catch (e: Exception) {
+            logError("eventPosts error: ${e.message}")
+            return List(reqs.size) { false }
+        } finally {
+            readLock.unlock()
+        }
+    }
+
     fun propertyGet(basic: TslBasic, req: TslRequest): TslResponse {
+        return propertyGet(basic, req, CallOptions.defaultOptions())
+    }
+
+    fun propertyGet(basic: TslBasic, req: TslRequest, options: CallOptions): TslResponse {
         readLock.lock()
         try {
             mqttClient?.let {
                 logDebug("propertyGet called")
                 val response = TslResponse()
-                val success = it.PropertyGet(basic, req, response)
+                val success = it.PropertyGet(basic, req, response, options)
                 if (!success) {
                     response.code = "500"
                     response.message = "Property get failed"
@@ -175,6 +238,35 @@ class Iot {
         }
     }
 
+    /**
+     * 异步属性获取，返回平台的原始响应；失败时 code 为对应的 IotError
+     */
+    fun propertyGetAsync(basic: TslBasic, req: TslRequest): CompletableFuture<TslResponse> {
+        return propertyGetAsync(basic, req, CallOptions.defaultOptions())
+    }
+
+    fun propertyGetAsync(basic: TslBasic, req: TslRequest, options: CallOptions): CompletableFuture<TslResponse> {
+        readLock.lock()
+        try {
+            mqttClient?.let {
+                logDebug("propertyGetAsync called")
+                return it.PropertyGetAsync(basic, req, options)
+            }
+            return CompletableFuture.completedFuture(TslResponse().apply {
+                code = "500"
+                message = "MQTT client not initialized"
+            })
+        } catch (e: Exception) {
+            logError("propertyGetAsync error: ${e.message}")
+            return CompletableFuture.completedFuture(TslResponse().apply {
+                code = "500"
+                message = "Exception: ${e.message}"
+            })
+        } finally {
+            readLock.unlock()
+        }
+    }
+
     fun propertyPost(basic: TslBasic, req: TslRequest): Boolean {
         readLock.lock()
         try {
@@ -191,6 +283,22 @@ class Iot {
         }
     }
 
+    fun propertyPost(basic: TslBasic, req: TslRequest, qos: Int): Boolean {
+        readLock.lock()
+        try {
+            mqttClient?.let {
+                logDebug("propertyPost called with qos $qos")
+                return it.PropertyPost(basic, req, qos)
+            }
+            return false
+        } catch (e: Exception) {
+            logError("propertyPost error: ${e.message}")
+            return false
+        } finally {
+            readLock.unlock()
+        }
+    }
+
     fun publishCustom(topic: String, traceId: String, params: String): Boolean {
         readLock.lock()
         try {
@@ -207,6 +315,70 @@ class Iot {
         }
     }
 
+    fun publishCustom(topic: String, traceId: String, params: ByteArray): Boolean {
+        readLock.lock()
+        try {
+            mqttClient?.let {
+                logDebug("publishCustom called for topic: $topic")
+                return it.PublishCustom(topic, traceId, params)
+            }
+            return false
+        } catch (e: Exception) {
+            logError("publishCustom error: ${e.message}")
+            return false
+        } finally {
+            readLock.unlock()
+        }
+    }
+
+    fun publishCustom(topic: String, traceId: String, params: ByteBuffer): Boolean {
+        readLock.lock()
+        try {
+            mqttClient?.let {
+                logDebug("publishCustom called for topic: $topic")
+                return it.PublishCustom(topic, traceId, params)
+            }
+            return false
+        } catch (e: Exception) {
+            logError("publishCustom error: ${e.message}")
+            return false
+        } finally {
+            readLock.unlock()
+        }
+    }
+
+    fun publishCustomAsync(topic: String, traceId: String, params: String): CompletableFuture<PublishResult> {
+        readLock.lock()
+        try {
+            mqttClient?.let {
+                logDebug("publishCustomAsync called for topic: $topic")
+                return it.PublishCustomAsync(topic, traceId, params)
+            }
+            return CompletableFuture.completedFuture(PublishResult.failed("MQTT client not initialized"))
+        } catch (e: Exception) {
+            logError("publishCustomAsync error: ${e.message}")
+            return CompletableFuture.completedFuture(PublishResult.failed("Exception: ${e.message}"))
+        } finally {
+            readLock.unlock()
+        }
+    }
+
+    fun publishCustomAsync(topic: String, traceId: String, params: ByteArray): CompletableFuture<PublishResult> {
+        readLock.lock()
+        try {
+            mqttClient?.let {
+                logDebug("publishCustomAsync called for topic: $topic")
+                return it.PublishCustomAsync(topic, traceId, params)
+            }
+            return CompletableFuture.completedFuture(PublishResult.failed("MQTT client not initialized"))
+        } catch (e: Exception) {
+            logError("publishCustomAsync error: ${e.message}")
+            return CompletableFuture.completedFuture(PublishResult.failed("Exception: ${e.message}"))
+        } finally {
+            readLock.unlock()
+        }
+    }
+
     fun releaseMqtt() {
         writeLock.lock()
         try {
@@ -222,12 +394,16 @@ class Iot {
     }
 
     fun serviceCall(basic: TslBasic, req: TslRequest): TslResponse {
+        return serviceCall(basic, req, CallOptions.defaultOptions())
+    }
+
+    fun serviceCall(basic: TslBasic, req: TslRequest, options: CallOptions): TslResponse {
         readLock.lock()
         try {
             mqttClient?.let {
                 logDebug("serviceCall called")
                 val response = TslResponse()
-                val success = it.ServiceCall(basic, req, response)
+                val success = it.ServiceCall(basic, req, response, options)
                 if (!success) {
                     response.code = "500"
                     response.message = "Service call failed"
@@ -250,6 +426,59 @@ class Iot {
         }
     }
 
+    /**
+     * 异步服务调用，返回平台的原始响应；失败时 code 为对应的 IotError
+     */
+    fun serviceCallAsync(basic: TslBasic, req: TslRequest): CompletableFuture<TslResponse> {
+        return serviceCallAsync(basic, req, CallOptions.defaultOptions())
+    }
+
+    fun serviceCallAsync(basic: TslBasic, req: TslRequest, options: CallOptions): CompletableFuture<TslResponse> {
+        readLock.lock()
+        try {
+            mqttClient?.let {
+                logDebug("serviceCallAsync called")
+                return it.ServiceCallAsync(basic, req, options)
+            }
+            return CompletableFuture.completedFuture(TslResponse().apply {
+                code = "500"
+                message = "MQTT client not initialized"
+            })
+        } catch (e: Exception) {
+            logError("serviceCallAsync error: ${e.message}")
+            return CompletableFuture.completedFuture(TslResponse().apply {
+                code = "500"
+                message = "Exception: ${e.message}"
+            })
+        } finally {
+            readLock.unlock()
+        }
+    }
+
+    /**
+     * 移除某个方法 (完整方法名，如 thing.service.getSchedule) 的缓存响应
+     */
+    fun invalidateResponseCache(method: String) {
+        readLock.lock()
+        try {
+            mqttClient?.InvalidateResponseCache(method)
+        } finally {
+            readLock.unlock()
+        }
+    }
+
+    /**
+     * 清空响应缓存
+     */
+    fun invalidateResponseCache() {
+        readLock.lock()
+        try {
+            mqttClient?.InvalidateResponseCache()
+        } finally {
+            readLock.unlock()
+        }
+    }
+
     fun setLog(enable: Boolean, callback: IotLogCallback?) {
         writeLock.lock()
         try {
@@ -266,9 +495,7 @@ class Iot {
         try {
             mqttClient?.let {
                 logDebug("setPropertyGetCallback called")
-                it.SetPropertyGetCallback(NativeCallback.OnTslRequest { basic, req ->
-                    callback?.onRequest(req.params, req.method, basic.deviceId, TslDefines.CODE_SUCCESS_STRING)
-                })
+                it.SetPropertyGetCallback(callback?.let(::adaptDown))
             }
         } catch (e: Exception) {
             logError("setPropertyGetCallback error: ${e.message}")
@@ -282,9 +509,7 @@ class Iot {
         try {
             mqttClient?.let {
                 logDebug("setPropertySetCallback called")
-                it.SetPropertySetCallback(NativeCallback.OnTslRequest { basic, req ->
-                    callback?.onRequest(req.params, req.method, basic.deviceId, TslDefines.CODE_SUCCESS_STRING)
-                })
+                it.SetPropertySetCallback(callback?.let(::adaptDown))
             }
         } catch (e: Exception) {
             logError("setPropertySetCallback error: ${e.message}")
@@ -298,9 +523,7 @@ class Iot {
         try {
             mqttClient?.let {
                 logDebug("setServiceCallback called")
-                it.SetServiceCallback(NativeCallback.OnTslRequest { basic, req ->
-                    callback?.onRequest(req.params, req.method, basic.deviceId, TslDefines.CODE_SUCCESS_STRING)
-                })
+                it.SetServiceCallback(callback?.let(::adaptDown))
             }
         } catch (e: Exception) {
             logError("setServiceCallback error: ${e.message}")
@@ -309,6 +532,88 @@ class Iot {
         }
     }
 
+    fun setMethodCallback(method: String, callback: OnTslDownCallback?) {
+        readLock.lock()
+        try {
+            mqttClient?.let {
+                logDebug("setMethodCallback called for method: $method")
+                it.SetMethodCallback(method, callback?.let(::adaptDown))
+            }
+        } catch (e: Exception) {
+            logError("setMethodCallback error: ${e.message}")
+        } finally {
+            readLock.unlock()
+        }
+    }
+
+    fun setPropertyGetAsyncCallback(callback: OnTslDownAsyncCallback?) {
+        readLock.lock()
+        try {
+            mqttClient?.let {
+                logDebug("setPropertyGetAsyncCallback called")
+                it.SetPropertyGetCallback(callback?.let(::adaptDownAsync))
+            }
+        } catch (e: Exception) {
+            logError("setPropertyGetAsyncCallback error: ${e.message}")
+        } finally {
+            readLock.unlock()
+        }
+    }
+
+    fun setPropertySetAsyncCallback(callback: OnTslDownAsyncCallback?) {
+        readLock.lock()
+        try {
+            mqttClient?.let {
+                logDebug("setPropertySetAsyncCallback called")
+                it.SetPropertySetCallback(callback?.let(::adaptDownAsync))
+            }
+        } catch (e: Exception) {
+            logError("setPropertySetAsyncCallback error: ${e.message}")
+        } finally {
+            readLock.unlock()
+        }
+    }
+
+    fun setServiceAsyncCallback(callback: OnTslDownAsyncCallback?) {
+        readLock.lock()
+        try {
+            mqttClient?.let {
+                logDebug("setServiceAsyncCallback called")
+                it.SetServiceCallback(callback?.let(::adaptDownAsync))
+            }
+        } catch (e: Exception) {
+            logError("setServiceAsyncCallback error: ${e.message}")
+        } finally {
+            readLock.unlock()
+        }
+    }
+
+    fun setMethodAsyncCallback(method: String, callback: OnTslDownAsyncCallback?) {
+        readLock.lock()
+        try {
+            mqttClient?.let {
+                logDebug("setMethodAsyncCallback called for method: $method")
+                it.SetMethodCallback(method, callback?.let(::adaptDownAsync))
+            }
+        } catch (e: Exception) {
+            logError("setMethodAsyncCallback error: ${e.message}")
+        } finally {
+            readLock.unlock()
+        }
+    }
+
+    // 同步回调的返回值即为回复内容，返回 null 时回复成功
+    private fun adaptDown(callback: OnTslDownCallback) = NativeCallback.OnTslAsyncRequest { basic, req ->
+        CompletableFuture.completedFuture(
+            callback.onRequest(req.params, req.method, basic.deviceId, TslDefines.CODE_SUCCESS_STRING)
+        )
+    }
+
+    private fun adaptDownAsync(callback: OnTslDownAsyncCallback) = NativeCallback.OnTslAsyncRequest { basic, req ->
+        callback.onRequest(req.params, req.method, basic.deviceId, TslDefines.CODE_SUCCESS_STRING)
+            ?: CompletableFuture.completedFuture(null)
+    }
+
     fun subscribeCustom(topic: String, callback: NativeCallback.OnCustomTopic?): Boolean {
         readLock.lock()
         try {
@@ -426,6 +731,50 @@ class Iot {
         }
     }
 
+    /**
+     * 直接发布已编码的MQTT消息，payload 不做转换
+     */
+    fun publishMessage(topic: String, payload: ByteArray, qos: Int, isRetain: Boolean): Boolean {
+        readLock.lock()
+        try {
+            return mqttClient?.PublishMessage(topic, payload, qos, isRetain) ?: false
+        } finally {
+            readLock.unlock()
+        }
+    }
+
+    fun publishMessage(topic: String, payload: ByteBuffer, qos: Int, isRetain: Boolean): Boolean {
+        readLock.lock()
+        try {
+            return mqttClient?.PublishMessage(topic, payload, qos, isRetain) ?: false
+        } finally {
+            readLock.unlock()
+        }
+    }
+
+    /**
+     * 异步发布MQTT消息，确认或失败时完成
+     */
+    fun publishMessageAsync(topic: String, payload: String, qos: Int, isRetain: Boolean): CompletableFuture<PublishResult> {
+        readLock.lock()
+        try {
+            return mqttClient?.PublishMessageAsync(topic, payload, qos, isRetain)
+                ?: CompletableFuture.completedFuture(PublishResult.failed("MQTT client not initialized"))
+        } finally {
+            readLock.unlock()
+        }
+    }
+
+    fun publishMessageAsync(topic: String, payload: ByteArray, qos: Int, isRetain: Boolean): CompletableFuture<PublishResult> {
+        readLock.lock()
+        try {
+            return mqttClient?.PublishMessageAsync(topic, payload, qos, isRetain)
+                ?: CompletableFuture.completedFuture(PublishResult.failed("MQTT client not initialized"))
+        } finally {
+            readLock.unlock()
+        }
+    }
+
     /**
      * 获取底层MQTT客户端（用于高级操作）
      */
@@ -483,12 +832,27 @@ class Iot {
                 "initialized" to (mqttClient != null),
                 "connected" to (mqttClient?.IsConnected() ?: false),
                 "initComplete" to isInitConnectComplete,
-                "logEnabled" to enableLog
+                "logEnabled" to enableLog,
+                "inbound" to (mqttClient?.getInboundStats() ?: emptyMap<String, Long>()),
+                "outbound" to (mqttClient?.getOutboundStats() ?: emptyMap<String, Long>()),
+                "latency" to getLatencyStats()
             )
         } finally {
             readLock.unlock()
         }
     }
+
+    /**
+     * 下行请求分阶段耗时 (p50/p99/p999)，按方法分组
+     */
+    fun getLatencyStats(): Map<String, Map<String, Map<String, Long>>> {
+        readLock.lock()
+        try {
+            return mqttClient?.getLatencyStats() ?: emptyMap()
+        } finally {
+            readLock.unlock()
+        }
+    }
     // 添加这个方法供 Java 代码调用
     fun getReadLock(): Lock {
         return readLock
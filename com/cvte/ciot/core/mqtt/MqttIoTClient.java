@@ -4,10 +4,18 @@ import com.cvte.ciot.core.IIoTClient;
 import com.cvte.ciot.core.callback.IotLogCallback;
 import com.cvte.ciot.core.callback.NativeCallback;
 import com.cvte.ciot.core.callback.OnCustomTopicCallback;
+import com.cvte.ciot.core.callback.OnTslDownAsyncCallback;
 import com.cvte.ciot.core.callback.OnTslDownCallback;
+import com.cvte.ciot.core.model.CallOptions;
+import com.cvte.ciot.core.model.PublishResult;
 import com.cvte.ciot.core.model.tsl.TslBasic;
 import com.cvte.ciot.core.model.tsl.TslRequest;
 import com.cvte.ciot.core.model.tsl.TslResponse;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.locks.Lock;
 
 public class MqttIoTClient implements IIoTClient {
@@ -84,6 +92,86 @@ public class MqttIoTClient implements IIoTClient {
         }
     }
 
+    @Override // com.cvte.ciot.core.IIoTClient
+    public boolean setMethodCallback(String method, OnTslDownCallback callback) {
+        Lock readLock = mIot.getReadLock(); // 使用 getReadLock() 方法
+        readLock.lock();
+        try {
+            if (this.mIot.checkMqttPointEnable()) {
+                this.mIot.setMethodCallback(method, callback);
+                return true;
+            } else {
+                return false;
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override // com.cvte.ciot.core.IIoTClient
+    public boolean setPropertyGetAsyncCallback(OnTslDownAsyncCallback callback) {
+        Lock readLock = mIot.getReadLock();
+        readLock.lock();
+        try {
+            if (this.mIot.checkMqttPointEnable()) {
+                this.mIot.setPropertyGetAsyncCallback(callback);
+                return true;
+            } else {
+                return false;
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override // com.cvte.ciot.core.IIoTClient
+    public boolean setPropertySetAsyncCallback(OnTslDownAsyncCallback callback) {
+        Lock readLock = mIot.getReadLock();
+        readLock.lock();
+        try {
+            if (this.mIot.checkMqttPointEnable()) {
+                this.mIot.setPropertySetAsyncCallback(callback);
+                return true;
+            } else {
+                return false;
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override // com.cvte.ciot.core.IIoTClient
+    public boolean setServiceAsyncCallback(OnTslDownAsyncCallback callback) {
+        Lock readLock = mIot.getReadLock();
+        readLock.lock();
+        try {
+            if (this.mIot.checkMqttPointEnable()) {
+                this.mIot.setServiceAsyncCallback(callback);
+                return true;
+            } else {
+                return false;
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override // com.cvte.ciot.core.IIoTClient
+    public boolean setMethodAsyncCallback(String method, OnTslDownAsyncCallback callback) {
+        Lock readLock = mIot.getReadLock();
+        readLock.lock();
+        try {
+            if (this.mIot.checkMqttPointEnable()) {
+                this.mIot.setMethodAsyncCallback(method, callback);
+                return true;
+            } else {
+                return false;
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
     @Override // com.cvte.ciot.core.IIoTClient
     public boolean subscribeCustom(String topic, NativeCallback.OnCustomTopic callback) {
         Lock readLock = mIot.getReadLock(); // 使用 getReadLock() 方法
@@ -120,6 +208,17 @@ public class MqttIoTClient implements IIoTClient {
         }
     }
 
+    @Override // com.cvte.ciot.core.IIoTClient
+    public boolean postProperty(TslBasic basic, TslRequest request, int qos) {
+        Lock readLock = mIot.getReadLock();
+        readLock.lock();
+        try {
+            return this.mIot.isInitConnectComplete() ? this.mIot.propertyPost(basic, request, qos) : false;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
     @Override // com.cvte.ciot.core.IIoTClient
     public boolean postEvent(TslBasic basic, TslRequest request) {
         Lock readLock = mIot.getReadLock(); // 使用 getReadLock() 方法
@@ -131,13 +230,57 @@ public class MqttIoTClient implements IIoTClient {
         }
     }
 
+    @Override // com.cvte.ciot.core.IIoTClient
+    public boolean postEvent(TslBasic basic, TslRequest request, int qos) {
+        Lock readLock = mIot.getReadLock();
+        readLock.lock();
+        try {
+            return this.mIot.isInitConnectComplete() ? this.mIot.eventPost(basic, request, qos) : false;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override // com.cvte.ciot.core.IIoTClient
+    public List<Boolean> postEvents(TslBasic basic, List<TslRequest> requests, boolean aggregate) {
+        Lock readLock = mIot.getReadLock();
+        readLock.lock();
+        try {
+            if (this.mIot.isInitConnectComplete()) {
+                return this.mIot.eventPosts(basic, requests, aggregate);
+            }
+            return new ArrayList<>(Collections.nCopies(requests.size(), false));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override // com.cvte.ciot.core.IIoTClient
+    public List<Boolean> postEvents(TslBasic basic, List<TslRequest> requests, boolean aggregate, int qos) {
+        Lock readLock = mIot.getReadLock();
+        readLock.lock();
+        try {
+            if (this.mIot.isInitConnectComplete()) {
+                return this.mIot.eventPosts(basic, requests, aggregate, qos);
+            }
+            return new ArrayList<>(Collections.nCopies(requests.size(), false));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
     @Override // com.cvte.ciot.core.IIoTClient
     public TslResponse getProperty(TslBasic basic, TslRequest request) {
+        return getProperty(basic, request, CallOptions.defaultOptions());
+    }
+
+    @Override // com.cvte.ciot.core.IIoTClient
+    public TslResponse getProperty(TslBasic basic, TslRequest request, CallOptions options) {
         Lock readLock = mIot.getReadLock(); // 使用 getReadLock() 方法
         readLock.lock();
         try {
             if (this.mIot.isInitConnectComplete()) {
-                return this.mIot.propertyGet(basic, request);
+                return this.mIot.propertyGet(basic, request, options);
             } else {
                 return new TslResponse(TslResponse.FAILED);
             }
@@ -146,13 +289,37 @@ public class MqttIoTClient implements IIoTClient {
         }
     }
 
+    @Override // com.cvte.ciot.core.IIoTClient
+    public CompletableFuture<TslResponse> getPropertyAsync(TslBasic basic, TslRequest request) {
+        return getPropertyAsync(basic, request, CallOptions.defaultOptions());
+    }
+
+    @Override // com.cvte.ciot.core.IIoTClient
+    public CompletableFuture<TslResponse> getPropertyAsync(TslBasic basic, TslRequest request, CallOptions options) {
+        Lock readLock = mIot.getReadLock();
+        readLock.lock();
+        try {
+            if (this.mIot.isInitConnectComplete()) {
+                return this.mIot.propertyGetAsync(basic, request, options);
+            }
+            return CompletableFuture.completedFuture(new TslResponse(TslResponse.FAILED));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
     @Override // com.cvte.ciot.core.IIoTClient
     public TslResponse callService(TslBasic basic, TslRequest request) {
+        return callService(basic, request, CallOptions.defaultOptions());
+    }
+
+    @Override // com.cvte.ciot.core.IIoTClient
+    public TslResponse callService(TslBasic basic, TslRequest request, CallOptions options) {
         Lock readLock = mIot.getReadLock(); // 使用 getReadLock() 方法
         readLock.lock();
         try {
             if (this.mIot.isInitConnectComplete()) {
-                return this.mIot.serviceCall(basic, request);
+                return this.mIot.serviceCall(basic, request, options);
             } else {
                 return new TslResponse(TslResponse.FAILED);
             }
@@ -161,6 +328,35 @@ public class MqttIoTClient implements IIoTClient {
         }
     }
 
+    @Override // com.cvte.ciot.core.IIoTClient
+    public void invalidateResponseCache(String method) {
+        this.mIot.invalidateResponseCache(method);
+    }
+
+    @Override // com.cvte.ciot.core.IIoTClient
+    public void invalidateResponseCache() {
+        this.mIot.invalidateResponseCache();
+    }
+
+    @Override // com.cvte.ciot.core.IIoTClient
+    public CompletableFuture<TslResponse> callServiceAsync(TslBasic basic, TslRequest request) {
+        return callServiceAsync(basic, request, CallOptions.defaultOptions());
+    }
+
+    @Override // com.cvte.ciot.core.IIoTClient
+    public CompletableFuture<TslResponse> callServiceAsync(TslBasic basic, TslRequest request, CallOptions options) {
+        Lock readLock = mIot.getReadLock();
+        readLock.lock();
+        try {
+            if (this.mIot.isInitConnectComplete()) {
+                return this.mIot.serviceCallAsync(basic, request, options);
+            }
+            return CompletableFuture.completedFuture(new TslResponse(TslResponse.FAILED));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
     @Override // com.cvte.ciot.core.IIoTClient
     public boolean publishCustom(String topic, String traceId, String params) {
         Lock readLock = mIot.getReadLock(); // 使用 getReadLock() 方法
@@ -171,4 +367,54 @@ public class MqttIoTClient implements IIoTClient {
             readLock.unlock();
         }
     }
+
+    @Override // com.cvte.ciot.core.IIoTClient
+    public boolean publishCustom(String topic, String traceId, byte[] params) {
+        Lock readLock = mIot.getReadLock();
+        readLock.lock();
+        try {
+            return this.mIot.isInitConnectComplete() ? this.mIot.publishCustom(topic, traceId, params) : false;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override // com.cvte.ciot.core.IIoTClient
+    public boolean publishCustom(String topic, String traceId, ByteBuffer params) {
+        Lock readLock = mIot.getReadLock();
+        readLock.lock();
+        try {
+            return this.mIot.isInitConnectComplete() ? this.mIot.publishCustom(topic, traceId, params) : false;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override // com.cvte.ciot.core.IIoTClient
+    public CompletableFuture<PublishResult> publishCustomAsync(String topic, String traceId, String params) {
+        Lock readLock = mIot.getReadLock();
+        readLock.lock();
+        try {
+            if (this.mIot.isInitConnectComplete()) {
+                return this.mIot.publishCustomAsync(topic, traceId, params);
+            }
+            return CompletableFuture.completedFuture(PublishResult.failed("IoT client is not connected"));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override // com.cvte.ciot.core.IIoTClient
+    public CompletableFuture<PublishResult> publishCustomAsync(String topic, String traceId, byte[] params) {
+        Lock readLock = mIot.getReadLock();
+        readLock.lock();
+        try {
+            if (this.mIot.isInitConnectComplete()) {
+                return this.mIot.publishCustomAsync(topic, traceId, params);
+            }
+            return CompletableFuture.completedFuture(PublishResult.failed("IoT client is not connected"));
+        } finally {
+            readLock.unlock();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,240 @@
+package com.cvte.ciot.core.utils;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 22:10
+ * @description HashedWheelTimer
+ */
+
+/**
+ * 时间轮定时器，用于大量、短时、多数会被取消的超时任务 (如等待中的同步请求)。
+ * <p>
+ * 单个工作线程每个 tick 推进一格，只处理当前格中的任务；新建与取消都只入无锁队列，
+ * 由工作线程在下一个 tick 批量挂入 / 摘除 (双向链表，O(1))。精度为一个 tick。
+ * <p>
+ * 任务在工作线程上执行，应尽快返回。
+ */
+public final class HashedWheelTimer {
+
+    /**
+     * 已提交的定时任务
+     */
+    public interface Timeout {
+        /** 取消任务，已执行或已取消时返回 false */
+        boolean cancel();
+
+        boolean isExpired();
+    }
+
+    private static final int ST_INIT = 0;
+    private static final int ST_CANCELLED = 1;
+    private static final int ST_EXPIRED = 2;
+
+    /** 每个 tick 最多挂入的新任务数，避免突发提交时推迟到期任务的执行 */
+    private static final int MAX_TRANSFER_PER_TICK = 100_000;
+
+    private final class Entry implements Timeout {
+        final Runnable task;
+        final long deadline; // 相对 startTime 的纳秒数
+        final AtomicInteger state = new AtomicInteger(ST_INIT);
+        long remainingRounds;
+        Bucket bucket;
+        Entry prev;
+        Entry next;
+
+        Entry(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!state.compareAndSet(ST_INIT, ST_CANCELLED)) return false;
+            // 未挂入时间轮的任务在挂入时跳过，已挂入的由工作线程摘除
+            cancelled.offer(this);
+            return true;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state.get() == ST_EXPIRED;
+        }
+
+        void expire() {
+            if (!state.compareAndSet(ST_INIT, ST_EXPIRED)) return;
+            try {
+                task.run();
+            } catch (Throwable t) {
+                t.printStackTrace();
+            }
+        }
+    }
+
+    private final class Bucket {
+        Entry head;
+        Entry tail;
+
+        void add(Entry e) {
+            e.bucket = this;
+            if (head == null) {
+                head = tail = e;
+            } else {
+                tail.next = e;
+                e.prev = tail;
+                tail = e;
+            }
+        }
+
+        void remove(Entry e) {
+            if (e.prev != null) e.prev.next = e.next;
+            if (e.next != null) e.next.prev = e.prev;
+            if (e == head) head = e.next;
+            if (e == tail) tail = e.prev;
+            e.prev = e.next = null;
+            e.bucket = null;
+            pendingCount.decrementAndGet();
+        }
+
+        void expire(long deadline) {
+            Entry e = head;
+            while (e != null) {
+                Entry next = e.next;
+                if (e.remainingRounds <= 0 && e.deadline <= deadline) {
+                    remove(e);
+                    e.expire();
+                } else if (e.state.get() == ST_CANCELLED) {
+                    remove(e);
+                } else if (e.remainingRounds > 0) {
+                    e.remainingRounds--;
+                }
+                e = next;
+            }
+        }
+    }
+
+    private final Bucket[] wheel;
+    private final int mask;
+    private final long tickNanos;
+    private final long startTime;
+    private final Thread worker;
+    private final Queue<Entry> added = new ConcurrentLinkedQueue<>();
+    private final Queue<Entry> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pendingCount = new AtomicLong();
+    private volatile boolean shutdown;
+    private long tick; // 仅工作线程访问
+
+    /**
+     * @param threadName    工作线程名称
+     * @param tickDuration  每格的时长，即超时精度
+     * @param ticksPerWheel 格数，向上取整为 2 的幂
+     */
+    public HashedWheelTimer(String threadName, long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be positive: " + tickDuration);
+        }
+        if (ticksPerWheel <= 0 || ticksPerWheel > (1 << 30)) {
+            throw new IllegalArgumentException("ticksPerWheel out of range: " + ticksPerWheel);
+        }
+        int size = 1;
+        while (size < ticksPerWheel) size <<= 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.startTime = System.nanoTime();
+        this.worker = new Thread(this::run, threadName);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * @brief 在 delay 之后执行 task
+     * @throws RejectedExecutionException 定时器已停止
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        if (shutdown) throw new RejectedExecutionException("HashedWheelTimer is stopped");
+        long deadline = System.nanoTime() + unit.toNanos(Math.max(0, delay)) - startTime;
+        Entry entry = new Entry(task, deadline);
+        pendingCount.incrementAndGet();
+        added.offer(entry);
+        return entry;
+    }
+
+    /**
+     * @brief 尚未执行也未被摘除的任务数 (已取消但未摘除的也计入)
+     */
+    public long pending() {
+        return pendingCount.get();
+    }
+
+    /**
+     * @brief 停止工作线程，未执行的任务不再执行
+     */
+    public void stop() {
+        shutdown = true;
+        worker.interrupt();
+    }
+
+    // ------------------------------------------------------------------
+
+    private void run() {
+        while (!shutdown) {
+            long deadline = waitForNextTick();
+            if (deadline < 0) return;
+            removeCancelled();
+            transferAdded();
+            wheel[(int) (tick & mask)].expire(deadline);
+            tick++;
+        }
+    }
+
+    /**
+     * 睡眠到下一个 tick，返回该 tick 相对 startTime 的时间；被中断返回 -1
+     */
+    private long waitForNextTick() {
+        long deadline = tickNanos * (tick + 1);
+        while (true) {
+            long now = System.nanoTime() - startTime;
+            long sleepNanos = deadline - now;
+            if (sleepNanos <= 0) return now;
+            try {
+                TimeUnit.NANOSECONDS.sleep(sleepNanos);
+            } catch (InterruptedException e) {
+                if (shutdown) return -1;
+            }
+        }
+    }
+
+    private void transferAdded() {
+        for (int i = 0; i < MAX_TRANSFER_PER_TICK; i++) {
+            Entry e = added.poll();
+            if (e == null) return;
+            if (e.state.get() == ST_CANCELLED) {
+                pendingCount.decrementAndGet();
+                continue;
+            }
+            long calculated = e.deadline / tickNanos;
+            e.remainingRounds = (calculated - tick) / wheel.length;
+            // 已过期的任务放入当前格，本 tick 内执行
+            long ticks = Math.max(calculated, tick);
+            wheel[(int) (ticks & mask)].add(e);
+        }
+    }
+
+    private void removeCancelled() {
+        while (true) {
+            Entry e = cancelled.poll();
+            if (e == null) return;
+            if (e.bucket != null) e.bucket.remove(e);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.cvte.ciot.core.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 17:40
+ * @description InboundLatencyStats
+ */
+
+/**
+ * 按 TSL 方法统计下行请求各阶段耗时: 排队、解析、处理器、响应发布。
+ * <p>
+ * 方法首次出现时创建其直方图，之后的记录只有一次无锁查找与若干原子自增。
+ * 方法名由云端决定，超过上限后新方法统一计入 {@link #OTHER_METHOD}。
+ */
+public final class InboundLatencyStats {
+
+    public enum Stage {
+        QUEUE_WAIT("queueWait"),
+        DECODE("decode"),
+        HANDLER("handler"),
+        PUBLISH("publish");
+
+        final String key;
+
+        Stage(String key) {
+            this.key = key;
+        }
+    }
+
+    public static final String OTHER_METHOD = "_other";
+    private static final int MAX_METHODS = 256;
+    private static final Stage[] STAGES = Stage.values();
+
+    private final ConcurrentHashMap<String, LatencyHistogram[]> methods = new ConcurrentHashMap<>();
+
+    /**
+     * @brief 记录某方法某阶段的耗时 (纳秒)
+     */
+    public void record(String method, Stage stage, long nanos) {
+        histogramsOf(method)[stage.ordinal()].record(nanos);
+    }
+
+    /**
+     * @brief 快照: 方法 -> 阶段 -> {count, p50Us, p99Us, p999Us, maxUs}
+     */
+    public Map<String, Map<String, Map<String, Long>>> snapshot() {
+        Map<String, Map<String, Map<String, Long>>> result = new TreeMap<>();
+        methods.forEach((method, histograms) -> {
+            Map<String, Map<String, Long>> stages = new LinkedHashMap<>();
+            for (Stage stage : STAGES) {
+                LatencyHistogram h = histograms[stage.ordinal()];
+                if (h.count() == 0) continue;
+                Map<String, Long> values = new LinkedHashMap<>();
+                values.put("count", h.count());
+                values.put("p50Us", h.percentile(0.5) / 1000);
+                values.put("p99Us", h.percentile(0.99) / 1000);
+                values.put("p999Us", h.percentile(0.999) / 1000);
+                values.put("maxUs", h.max() / 1000);
+                stages.put(stage.key, values);
+            }
+            result.put(method, stages);
+        });
+        return result;
+    }
+
+    private LatencyHistogram[] histogramsOf(String method) {
+        if (method == null || method.isEmpty()) method = OTHER_METHOD;
+        LatencyHistogram[] histograms = methods.get(method);
+        if (histograms != null) return histograms;
+        if (methods.size() >= MAX_METHODS) method = OTHER_METHOD;
+        return methods.computeIfAbsent(method, k -> newHistograms());
+    }
+
+    private static LatencyHistogram[] newHistograms() {
+        LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        return histograms;
+    }
+}
@@ -0,0 +1,123 @@
+package com.cvte.ciot.core.utils;
+
+import com.cvte.ciot.core.model.PublishResult;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 18:50
+ * @description JournalReplayer
+ */
+
+/**
+ * 离线日志重放。
+ * <p>
+ * 按写入顺序发出，最多同时有 window 条未确认，吞吐不受单条往返时间限制；
+ * 确认按顺序推进，收到发布成功的结果 (PUBACK) 后才从日志中移除 (at-least-once)。
+ * 断线、发布失败或等待确认超时时停止，未确认的消息留在日志中，下次重放时重新发出。
+ * <p>
+ * 每次重放开始时记下日志的写位置作为高水位，确认推进到高水位时回调 onCaughtUp：
+ * 调用方据此停止把实时消息转入日志，之后写入的少量消息随本次重放发完。
+ */
+public final class JournalReplayer {
+
+    /**
+     * 日志消息的发送方
+     */
+    public interface Sender {
+        /** 发出一条消息，返回的 future 在确认或失败时完成 */
+        CompletableFuture<PublishResult> send(OutboundJournal.Record record);
+    }
+
+    private static final class Outstanding {
+        final OutboundJournal.Record record;
+        final CompletableFuture<PublishResult> result;
+
+        Outstanding(OutboundJournal.Record record, CompletableFuture<PublishResult> result) {
+            this.record = record;
+            this.result = result;
+        }
+    }
+
+    private final OutboundJournal journal;
+    private final Sender sender;
+    private final BooleanSupplier connected;
+    private final int window;
+    private final long intervalNanos;
+    private final long ackTimeoutMillis;
+
+    /**
+     * @param window           最多同时未确认的条数
+     * @param intervalNanos    相邻两条消息发出的最小间隔，0 表示不限速
+     * @param ackTimeoutMillis 等待单条消息确认的最长时间
+     */
+    public JournalReplayer(OutboundJournal journal, Sender sender, BooleanSupplier connected,
+                           int window, long intervalNanos, long ackTimeoutMillis) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("window must be positive: " + window);
+        }
+        this.journal = journal;
+        this.sender = sender;
+        this.connected = connected;
+        this.window = window;
+        this.intervalNanos = intervalNanos;
+        this.ackTimeoutMillis = ackTimeoutMillis;
+    }
+
+    /**
+     * @brief 重放直到日志为空或无法继续
+     * @param onCaughtUp 确认推进到本次开始时的写位置后回调一次，可为 null
+     * @return true 表示日志已全部发出
+     * @throws InterruptedException 重放线程被中断，未确认的消息留在日志中
+     */
+    public boolean replay(Runnable onCaughtUp) throws InterruptedException {
+        long highWater = journal.writePosition();
+        boolean caughtUp = false;
+        ArrayDeque<Outstanding> outstanding = new ArrayDeque<>(window);
+        OutboundJournal.Record cursor = null;
+        long nextAt = System.nanoTime();
+
+        while (connected.getAsBoolean()) {
+            // 窗口未满时继续发出
+            while (outstanding.size() < window) {
+                OutboundJournal.Record record = journal.peekAfter(cursor);
+                if (record == null) break;
+                long wait = nextAt - System.nanoTime();
+                if (intervalNanos > 0 && wait > 0) LockSupport.parkNanos(wait);
+                if (Thread.interrupted()) throw new InterruptedException();
+                nextAt = System.nanoTime() + intervalNanos;
+                outstanding.addLast(new Outstanding(record, sender.send(record)));
+                cursor = record;
+            }
+
+            Outstanding head = outstanding.pollFirst();
+            if (head == null) {
+                if (!caughtUp && onCaughtUp != null) onCaughtUp.run();
+                return true;
+            }
+            if (!awaitSuccess(head.result)) return false;
+            journal.commit(head.record);
+            if (!caughtUp && journal.readPosition() >= highWater) {
+                caughtUp = true;
+                if (onCaughtUp != null) onCaughtUp.run();
+            }
+        }
+        return false;
+    }
+
+    private boolean awaitSuccess(CompletableFuture<PublishResult> future) throws InterruptedException {
+        try {
+            PublishResult result = future.get(ackTimeoutMillis, TimeUnit.MILLISECONDS);
+            return result != null && result.isSuccess();
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+}
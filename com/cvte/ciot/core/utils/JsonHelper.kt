@@ -3,7 +3,11 @@ package com.cvte.ciot.core.utils
 import com.cvte.ciot.core.model.IotError
 import com.cvte.ciot.core.model.tsl.*
 import com.google.gson.*
+import com.google.gson.stream.JsonReader
 import com.google.gson.stream.JsonToken
+import java.io.ByteArrayInputStream
+import java.io.InputStreamReader
+import java.io.StringWriter
 
 /**
  * @author AnswerDev
@@ -53,6 +57,78 @@ object JsonHelper {
         return gson.toJson(root)
     }
 
+    /**
+     * 批量序列化上行请求，共用一个写缓冲，逐条写出后截取。
+     * traceIds 与 reqs 一一对应；params 无法解析的位置为 null
+     */
+    fun serializeTslUpBatch(basic: TslBasic, traceIds: List<String>, reqs: List<TslRequest>): List<String?> {
+        val out = ArrayList<String?>(reqs.size)
+        val buffer = StringWriter()
+        for (i in reqs.indices) {
+            val params = parseParams(reqs[i].params)
+            if (params == null) {
+                out.add(null)
+                continue
+            }
+            buffer.buffer.setLength(0)
+            val writer = gson.newJsonWriter(buffer)
+            writer.beginObject()
+            writer.name(TslDefines.TAG_VERSION).value(basic.version ?: "1.0")
+            writer.name(TslDefines.TAG_TRACEID).value(traceIds[i])
+            writer.name(TslDefines.TAG_METHOD).value(reqs[i].method)
+            writer.name(TslDefines.TAG_PARAMS)
+            gson.toJson(params, writer)
+            writer.endObject()
+            writer.flush()
+            out.add(buffer.toString())
+        }
+        return out
+    }
+
+    /**
+     * 将多条事件聚合为一条 thing.event.batch.post，params 为 {"events":[{method, params}, ...]}。
+     * accepted 标记每条事件是否被写入 (params 无法解析的事件被跳过)；没有可写入的事件时返回空串
+     */
+    fun serializeTslEventBatch(basic: TslBasic, reqs: List<TslRequest>, accepted: BooleanArray): String {
+        val buffer = StringWriter()
+        val writer = gson.newJsonWriter(buffer)
+        writer.beginObject()
+        writer.name(TslDefines.TAG_VERSION).value(basic.version ?: "1.0")
+        writer.name(TslDefines.TAG_TRACEID).value(basic.traceId)
+        writer.name(TslDefines.TAG_METHOD).value(TslDefines.UP_METHOD_EVENT_BATCH_POST)
+        writer.name(TslDefines.TAG_PARAMS).beginObject()
+        writer.name("events").beginArray()
+        var count = 0
+        for (i in reqs.indices) {
+            val params = parseParams(reqs[i].params)
+            accepted[i] = params != null
+            if (params == null) continue
+            writer.beginObject()
+            writer.name(TslDefines.TAG_METHOD).value(reqs[i].method)
+            writer.name(TslDefines.TAG_PARAMS)
+            gson.toJson(params, writer)
+            writer.endObject()
+            count++
+        }
+        writer.endArray()
+        writer.endObject()
+        writer.endObject()
+        writer.flush()
+        return if (count == 0) "" else buffer.toString()
+    }
+
+    /**
+     * 解析上行 params，为空时视为 {}，无法解析返回 null
+     */
+    private fun parseParams(params: String?): JsonElement? {
+        if (params.isNullOrEmpty()) return JsonObject()
+        return try {
+            parser.parse(params)
+        } catch (e: JsonParseException) {
+            null
+        }
+    }
+
     // --- 反序列化 ---
 
     fun deserializeTslReq(payload: String?, basic: TslBasic, req: TslRequest): Boolean {
@@ -114,6 +190,52 @@ object JsonHelper {
         }
     }
 
+    /**
+     * 直接从 payload 字节流式解析上行响应，一次遍历同时取出 traceId 与 code/message/data
+     */
+    fun deserializeTslRes(payload: ByteArray?, basic: TslBasic, res: TslResponse): Boolean {
+        if (payload == null || payload.isEmpty()) return false
+        try {
+            JsonReader(InputStreamReader(ByteArrayInputStream(payload), Charsets.UTF_8)).use { reader ->
+                var hasCode = false
+                reader.beginObject()
+                while (reader.hasNext()) {
+                    when (reader.nextName()) {
+                        TslDefines.TAG_TRACEID -> basic.traceId = readAsString(reader)
+                        TslDefines.TAG_VERSION -> basic.version = readAsString(reader)
+                        TslDefines.TAG_CODE -> {
+                            res.code = readAsString(reader)
+                            hasCode = true
+                        }
+                        TslDefines.TAG_MESSAGE -> res.message = readAsString(reader)
+                        TslDefines.TAG_DATA -> res.data = readAsString(reader)
+                        else -> reader.skipValue()
+                    }
+                }
+                reader.endObject()
+                if (!hasCode) res.code = IotError.IOT_ERROR_DESERIALIZE_FAIL.getCodeStr()
+            }
+            return true
+        } catch (e: Exception) {
+            return false
+        }
+    }
+
+    /**
+     * 读取当前值为字符串：对象/数组取 JSON 文本，基本类型取其字面值
+     */
+    private fun readAsString(reader: JsonReader): String {
+        return when (reader.peek()) {
+            JsonToken.BEGIN_OBJECT, JsonToken.BEGIN_ARRAY -> parser.parse(reader).toString()
+            JsonToken.BOOLEAN -> reader.nextBoolean().toString()
+            JsonToken.NULL -> {
+                reader.nextNull()
+                "null"
+            }
+            else -> reader.nextString()
+        }
+    }
+
     fun deserializeTslUpdate(params: String?, update: TslUpdate): Boolean {
         if (params.isNullOrEmpty()) return false
         try {
@@ -0,0 +1,342 @@
+package com.cvte.ciot.core.utils;
+
+import com.cvte.ciot.core.model.InboundOverflowPolicy;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 11:03
+ * @description KeyedLaneExecutor
+ */
+
+/**
+ * 按 Key 分通道的串行执行器。
+ * <p>
+ * 每个通道是一个单线程执行器，Key 经哈希后固定落在同一通道：
+ * 同一 Key 的任务严格按提交顺序执行，不同 Key 的任务在各通道间并行，互不阻塞。
+ * <p>
+ * 所有通道共享一个总容量，队列满时按 {@link InboundOverflowPolicy} 处理新任务。
+ * <p>
+ * 可额外指定一个按 Key 执行器（如虚拟线程执行器），经 {@link #executePerKey} 提交的任务不进入固定通道：
+ * 每个有待执行任务的 Key 在该执行器上占用一个线程，按提交顺序依次执行，队列清空后线程结束。
+ * 同一 Key 仍然串行，不同 Key 之间不再受通道数限制。这类任务同样受总容量与溢出策略约束，执行完毕才归还容量。
+ */
+public final class KeyedLaneExecutor {
+
+    /**
+     * 可参与溢出策略的任务
+     */
+    public interface LaneTask extends Runnable {
+        /** 队列满且策略为 DROP_OLDEST 时，是否允许被丢弃 */
+        default boolean isDroppable() {
+            return false;
+        }
+
+        /** 任务被拒绝或被丢弃时回调，在提交线程上执行 */
+        default void onRejected() {
+        }
+    }
+
+    private static final class Entry {
+        final Runnable task;
+        final boolean droppable;
+        final long seq;
+
+        Entry(Runnable task, boolean droppable, long seq) {
+            this.task = task;
+            this.droppable = droppable;
+            this.seq = seq;
+        }
+    }
+
+    // executePerKey 使用的 null Key 占位
+    private static final Object NULL_KEY = new Object();
+
+    private final LinkedBlockingDeque<Entry>[] queues;
+    private final Thread[] workers;
+    private final int capacity;
+    private final InboundOverflowPolicy policy;
+    private final Semaphore permits;
+    private final Executor perKeyExecutor;
+    // 按 Key 执行的待执行任务，Key 存在即表示已有线程在执行该 Key 的任务
+    private final ConcurrentHashMap<Object, ArrayDeque<Runnable>> perKeyQueues = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger droppableQueued = new AtomicInteger();
+    private volatile boolean shutdown;
+
+    // --- 统计 ---
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicInteger peakDepth = new AtomicInteger();
+
+    public KeyedLaneExecutor(int laneCount, String threadNamePrefix) {
+        this(laneCount, threadNamePrefix, Integer.MAX_VALUE, InboundOverflowPolicy.REJECT, null);
+    }
+
+    public KeyedLaneExecutor(int laneCount, String threadNamePrefix, int capacity, InboundOverflowPolicy policy) {
+        this(laneCount, threadNamePrefix, capacity, policy, null);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public KeyedLaneExecutor(int laneCount, String threadNamePrefix, int capacity, InboundOverflowPolicy policy,
+                             Executor perKeyExecutor) {
+        if (laneCount <= 0) {
+            throw new IllegalArgumentException("laneCount must be positive: " + laneCount);
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.policy = policy;
+        this.permits = new Semaphore(capacity);
+        this.perKeyExecutor = perKeyExecutor;
+        queues = new LinkedBlockingDeque[laneCount];
+        workers = new Thread[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            final LinkedBlockingDeque<Entry> queue = new LinkedBlockingDeque<>();
+            queues[i] = queue;
+            workers[i] = new Thread(() -> runLane(queue), threadNamePrefix + "-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * @brief 通道数量
+     */
+    public int laneCount() {
+        return queues.length;
+    }
+
+    /**
+     * @brief 提交任务到 key 对应的通道；被溢出策略拒绝时回调 {@link LaneTask#onRejected()}
+     * @throws RejectedExecutionException 执行器已关闭
+     */
+    public void execute(Object key, Runnable task) {
+        if (shutdown) throw new RejectedExecutionException("KeyedLaneExecutor is shut down");
+        submittedCount.incrementAndGet();
+
+        if (!permits.tryAcquire() && !acquireOnOverflow()) {
+            rejectedCount.incrementAndGet();
+            notifyRejected(task);
+            return;
+        }
+
+        boolean droppable = task instanceof LaneTask && ((LaneTask) task).isDroppable();
+        if (droppable) droppableQueued.incrementAndGet();
+        queues[laneOf(key)].offer(new Entry(task, droppable, sequence.getAndIncrement()));
+        updatePeakDepth();
+    }
+
+    /**
+     * @brief 是否配置了按 Key 执行器
+     */
+    public boolean hasPerKeyExecutor() {
+        return perKeyExecutor != null;
+    }
+
+    /**
+     * @brief 提交任务到按 Key 执行器，同一 key 的任务按提交顺序串行执行；未配置时退化为按 key 入通道
+     * @throws RejectedExecutionException 执行器已关闭
+     */
+    public void executePerKey(Object key, Runnable task) {
+        if (perKeyExecutor == null) {
+            execute(key, task);
+            return;
+        }
+        if (shutdown) throw new RejectedExecutionException("KeyedLaneExecutor is shut down");
+        submittedCount.incrementAndGet();
+
+        // 这类任务不可丢弃，DROP_OLDEST 只会为其腾出自定义 Topic 占用的位置
+        if (!permits.tryAcquire() && !acquireOnOverflow()) {
+            rejectedCount.incrementAndGet();
+            notifyRejected(task);
+            return;
+        }
+        updatePeakDepth();
+
+        final Object queueKey = key != null ? key : NULL_KEY;
+        final boolean[] idle = new boolean[1];
+        perKeyQueues.compute(queueKey, (k, queue) -> {
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                idle[0] = true;
+            }
+            queue.add(task);
+            return queue;
+        });
+        // 该 Key 已有线程在执行时由其继续取走，否则启动一个
+        if (!idle[0]) return;
+        try {
+            perKeyExecutor.execute(() -> drainKey(queueKey));
+        } catch (RejectedExecutionException e) {
+            ArrayDeque<Runnable> orphaned = perKeyQueues.remove(queueKey);
+            if (orphaned != null) {
+                permits.release(orphaned.size());
+                for (Runnable other : orphaned) {
+                    if (other != task) notifyRejected(other);
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @brief 计算 key 所在的通道下标
+     */
+    public int laneOf(Object key) {
+        if (key == null) return 0;
+        int h = key.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), queues.length);
+    }
+
+    private void updatePeakDepth() {
+        int depth = capacity - permits.availablePermits();
+        int peak;
+        while (depth > (peak = peakDepth.get()) && !peakDepth.compareAndSet(peak, depth)) {
+            // 重试
+        }
+    }
+
+    /**
+     * @brief 当前占用的容量: 排队中的任务数，加上无序执行器中尚未结束的任务数
+     */
+    public int queueDepth() {
+        return capacity - permits.availablePermits();
+    }
+
+    /**
+     * @brief 队列统计，用于评估容量
+     */
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("capacity", (long) capacity);
+        stats.put("depth", (long) queueDepth());
+        stats.put("peakDepth", (long) peakDepth.get());
+        stats.put("submitted", submittedCount.get());
+        stats.put("dropped", droppedCount.get());
+        stats.put("rejected", rejectedCount.get());
+        return stats;
+    }
+
+    public void shutdownNow() {
+        shutdown = true;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (LinkedBlockingDeque<Entry> queue : queues) {
+            queue.clear();
+        }
+        perKeyQueues.clear();
+    }
+
+    // ------------------------------------------------------------------
+
+    /**
+     * 队列已满时按策略尝试取得一个位置，返回 false 表示新任务应被拒绝
+     */
+    private boolean acquireOnOverflow() {
+        switch (policy) {
+            case DROP_OLDEST:
+                // 被丢弃任务占用的位置直接转给新任务
+                return dropOldest() || permits.tryAcquire();
+            case REJECT:
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 丢弃所有通道中最早入队的可丢弃任务
+     */
+    private boolean dropOldest() {
+        while (droppableQueued.get() > 0) {
+            LinkedBlockingDeque<Entry> oldestQueue = null;
+            Entry oldest = null;
+            for (LinkedBlockingDeque<Entry> queue : queues) {
+                Iterator<Entry> it = queue.iterator();
+                while (it.hasNext()) {
+                    Entry e = it.next();
+                    if (e.droppable) {
+                        if (oldest == null || e.seq < oldest.seq) {
+                            oldest = e;
+                            oldestQueue = queue;
+                        }
+                        break;
+                    }
+                }
+            }
+            if (oldest == null) return false;
+            // 与工作线程竞争，移除失败说明已被取走执行，重新查找
+            if (oldestQueue.removeFirstOccurrence(oldest)) {
+                droppableQueued.decrementAndGet();
+                droppedCount.incrementAndGet();
+                notifyRejected(oldest.task);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void notifyRejected(Runnable task) {
+        if (task instanceof LaneTask) {
+            try {
+                ((LaneTask) task).onRejected();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 依次执行某个 Key 的任务，队列取空时移除该 Key 并结束；之后到达的任务会启动新的线程
+     */
+    private void drainKey(Object key) {
+        final Runnable[] next = new Runnable[1];
+        while (!shutdown) {
+            perKeyQueues.computeIfPresent(key, (k, queue) -> {
+                next[0] = queue.poll();
+                return next[0] != null ? queue : null;
+            });
+            if (next[0] == null) return;
+            try {
+                next[0].run();
+            } catch (Throwable t) {
+                t.printStackTrace();
+            } finally {
+                next[0] = null;
+                permits.release();
+            }
+        }
+    }
+
+    private void runLane(LinkedBlockingDeque<Entry> queue) {
+        while (!shutdown) {
+            Entry entry;
+            try {
+                entry = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (entry.droppable) droppableQueued.decrementAndGet();
+            permits.release();
+            try {
+                entry.task.run();
+            } catch (Throwable t) {
+                t.printStackTrace();
+            }
+        }
+    }
+}
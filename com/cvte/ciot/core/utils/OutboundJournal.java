@@ -0,0 +1,411 @@
+package com.cvte.ciot.core.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 18:20
+ * @description OutboundJournal
+ */
+
+/**
+ * 离线上行消息日志 (store-and-forward)。
+ * <p>
+ * 消息按顺序追加到内存映射的分段文件中，不在堆上保留消息体。每个分段头部记录读位置，
+ * 进程重启后从上次的位置继续重放。总大小超过上限时丢弃最早的分段，过期消息在读取时跳过。
+ * <p>
+ * 分段格式: [magic:int][readPos:int] 之后为连续的记录，
+ * 记录格式: [bodyLen:int][expiresAt:long][qos:byte][retained:byte][topicLen:short][topic][payload]，
+ * bodyLen 最后写入，为 0 表示数据结束。
+ * <p>
+ * 写入可多线程并发；读取 ({@link #peek()} / {@link #peekAfter(Record)} / {@link #commit(Record)}) 只允许单个消费者。
+ * 消费者可以用 peekAfter 连续取出多条再按顺序确认，确认一条消息时它之前的消息一并移除。
+ * <p>
+ * 位置 ({@link Record#position}、{@link #readPosition()}、{@link #writePosition()}) 按写入顺序单调递增，用于比较先后。
+ */
+public final class OutboundJournal implements Closeable {
+
+    private static final int MAGIC = 0x494F544A; // "IOTJ"
+    private static final int SEGMENT_HEADER = 8;
+    private static final int RECORD_HEADER = 4 + 8 + 1 + 1 + 2;
+    private static final String SUFFIX = ".seg";
+
+    /**
+     * 日志中的一条消息
+     */
+    public static final class Record {
+        public final String topic;
+        public final byte[] payload;
+        public final int qos;
+        public final boolean retained;
+        // 在日志中的位置
+        public final long position;
+
+        private final Segment segment;
+        private final int next;
+
+        private Record(String topic, byte[] payload, int qos, boolean retained, Segment segment, int pos, int next) {
+            this.topic = topic;
+            this.payload = payload;
+            this.qos = qos;
+            this.retained = retained;
+            this.position = segment.position(pos);
+            this.segment = segment;
+            this.next = next;
+        }
+    }
+
+    private static final class Segment {
+        final long id;
+        final File file;
+        final RandomAccessFile raf;
+        final MappedByteBuffer buf;
+        int readPos;
+        int writePos;
+        int pending;
+
+        Segment(long id, File file, RandomAccessFile raf, MappedByteBuffer buf) {
+            this.id = id;
+            this.file = file;
+            this.raf = raf;
+            this.buf = buf;
+        }
+
+        long position(int pos) {
+            return id * buf.capacity() + pos;
+        }
+    }
+
+    private final File dir;
+    private final int segmentBytes;
+    private final long maxBytes;
+    private final long ttlMillis;
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private long pendingCount;
+    private long droppedCount;
+    private long expiredCount;
+    private boolean closed;
+
+    /**
+     * @param dir          日志目录，不存在时创建
+     * @param segmentBytes 单个分段文件大小
+     * @param maxBytes     所有分段的总大小上限
+     * @param ttlMillis    消息有效期，小于等于 0 表示不过期
+     * @throws IOException 目录不可用或已有分段无法映射
+     */
+    public OutboundJournal(File dir, int segmentBytes, long maxBytes, long ttlMillis) throws IOException {
+        if (segmentBytes <= SEGMENT_HEADER + RECORD_HEADER) {
+            throw new IllegalArgumentException("segmentBytes too small: " + segmentBytes);
+        }
+        if (maxBytes < segmentBytes) {
+            throw new IllegalArgumentException("maxBytes must not be less than segmentBytes: " + maxBytes);
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create journal directory: " + dir);
+        }
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttlMillis;
+        recover();
+    }
+
+    /**
+     * @brief 追加一条消息
+     * @return 消息过大或日志已关闭时返回 false
+     */
+    public synchronized boolean append(String topic, byte[] payload, int qos, boolean retained) {
+        if (closed) return false;
+        byte[] topicBytes = topic.getBytes(StandardCharsets.UTF_8);
+        int bodyLen = RECORD_HEADER - 4 + topicBytes.length + payload.length;
+        // 每个分段末尾至少留出 4 字节作为结束标记
+        if (topicBytes.length > Short.MAX_VALUE || SEGMENT_HEADER + 4 + bodyLen + 4 > segmentBytes) {
+            return false;
+        }
+
+        try {
+            Segment active = segments.peekLast();
+            if (active == null || active.writePos + 4 + bodyLen + 4 > segmentBytes) {
+                active = createSegment(active == null ? 0 : active.id + 1);
+                segments.addLast(active);
+                enforceLimit();
+            }
+
+            MappedByteBuffer buf = active.buf;
+            int pos = active.writePos;
+            long expiresAt = ttlMillis > 0 ? System.currentTimeMillis() + ttlMillis : Long.MAX_VALUE;
+            buf.putLong(pos + 4, expiresAt);
+            buf.put(pos + 12, (byte) qos);
+            buf.put(pos + 13, (byte) (retained ? 1 : 0));
+            buf.putShort(pos + 14, (short) topicBytes.length);
+            int p = pos + RECORD_HEADER;
+            for (byte b : topicBytes) buf.put(p++, b);
+            for (byte b : payload) buf.put(p++, b);
+            // 长度最后写入，作为记录的提交点
+            buf.putInt(pos, bodyLen);
+
+            active.writePos = pos + 4 + bodyLen;
+            active.pending++;
+            pendingCount++;
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * @brief 取出下一条未过期的消息但不移除，日志为空时返回 null
+     */
+    public synchronized Record peek() {
+        return peekAfter(null);
+    }
+
+    /**
+     * @brief 取出 previous 之后的下一条未过期消息但不移除，用于确认前连续发出多条；previous 为 null 时等同 {@link #peek()}
+     */
+    public synchronized Record peekAfter(Record previous) {
+        if (closed) return null;
+        Segment segment;
+        int pos;
+        if (previous != null && segments.contains(previous.segment)) {
+            segment = previous.segment;
+            pos = Math.max(previous.next, segment.readPos);
+        } else {
+            // previous 所在分段已读完或已被丢弃，从读位置开始
+            segment = segments.peekFirst();
+            if (segment == null) return null;
+            pos = segment.readPos;
+        }
+
+        while (true) {
+            if (pos >= segment.writePos) {
+                Segment following = following(segment);
+                if (following == null) return null;
+                if (segment == segments.peekFirst() && segment.readPos >= segment.writePos) removeHead();
+                segment = following;
+                pos = segment.readPos;
+                continue;
+            }
+
+            MappedByteBuffer buf = segment.buf;
+            int bodyLen = buf.getInt(pos);
+            int next = pos + 4 + bodyLen;
+            if (buf.getLong(pos + 4) < System.currentTimeMillis()) {
+                // 读位置上的过期消息直接移除，之后的由 commit 越过时移除
+                if (segment == segments.peekFirst() && pos == segment.readPos) {
+                    expiredCount++;
+                    advance(segment, next);
+                }
+                pos = next;
+                continue;
+            }
+
+            int qos = buf.get(pos + 12);
+            boolean retained = buf.get(pos + 13) != 0;
+            int topicLen = buf.getShort(pos + 14);
+            int p = pos + RECORD_HEADER;
+            byte[] topicBytes = new byte[topicLen];
+            for (int i = 0; i < topicLen; i++) topicBytes[i] = buf.get(p++);
+            byte[] payload = new byte[next - p];
+            for (int i = 0; i < payload.length; i++) payload[i] = buf.get(p++);
+            return new Record(new String(topicBytes, StandardCharsets.UTF_8), payload, qos, retained, segment, pos, next);
+        }
+    }
+
+    /**
+     * @brief 确认取出的消息已发出，将它及之前的消息从日志中移除
+     */
+    public synchronized void commit(Record record) {
+        // 期间分段因超出大小上限被丢弃时忽略
+        if (closed || !segments.contains(record.segment)) return;
+        while (true) {
+            Segment head = segments.peekFirst();
+            if (head == record.segment && head.readPos >= record.next) return;
+            int pos = head.readPos;
+            if (pos >= head.writePos) {
+                removeHead();
+                continue;
+            }
+            int next = pos + 4 + head.buf.getInt(pos);
+            // 越过的只能是 peekAfter 跳过的过期消息
+            if (head.buf.getLong(pos + 4) < System.currentTimeMillis()) expiredCount++;
+            advance(head, next);
+            // 分段读完时 advance 会将其移除
+            if (head == record.segment && next >= record.next) return;
+        }
+    }
+
+    /**
+     * @brief 读位置，日志为空时等于 {@link #writePosition()}
+     */
+    public synchronized long readPosition() {
+        Segment head = segments.peekFirst();
+        return head == null ? 0 : head.position(head.readPos);
+    }
+
+    /**
+     * @brief 写位置，之后追加的消息位置都不小于它
+     */
+    public synchronized long writePosition() {
+        Segment tail = segments.peekLast();
+        return tail == null ? 0 : tail.position(tail.writePos);
+    }
+
+    public synchronized boolean isEmpty() {
+        return pendingCount == 0;
+    }
+
+    /**
+     * @brief 统计: 待发送条数、占用字节数、因超限丢弃条数、过期条数
+     */
+    public synchronized Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("pending", pendingCount);
+        stats.put("bytes", (long) segments.size() * segmentBytes);
+        stats.put("dropped", droppedCount);
+        stats.put("expired", expiredCount);
+        return stats;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        for (Segment segment : segments) {
+            segment.buf.force();
+            closeQuietly(segment);
+        }
+        segments.clear();
+    }
+
+    // ------------------------------------------------------------------
+
+    private void advance(Segment segment, int next) {
+        segment.readPos = next;
+        segment.buf.putInt(4, next);
+        segment.pending--;
+        pendingCount--;
+        if (segment.readPos >= segment.writePos && segment != segments.peekLast()) {
+            removeHead();
+        }
+    }
+
+    /**
+     * 分段的下一个分段；segment 已被移除时返回第一个分段
+     */
+    private Segment following(Segment segment) {
+        Iterator<Segment> it = segments.iterator();
+        while (it.hasNext()) {
+            if (it.next() == segment) return it.hasNext() ? it.next() : null;
+        }
+        return segments.peekFirst();
+    }
+
+    private void enforceLimit() {
+        while ((long) segments.size() * segmentBytes > maxBytes && segments.size() > 1) {
+            Segment oldest = segments.peekFirst();
+            droppedCount += oldest.pending;
+            pendingCount -= oldest.pending;
+            removeHead();
+        }
+    }
+
+    private void removeHead() {
+        Segment head = segments.pollFirst();
+        closeQuietly(head);
+        if (!head.file.delete()) {
+            head.file.deleteOnExit();
+        }
+    }
+
+    private Segment createSegment(long id) throws IOException {
+        File file = new File(dir, String.format("%016d%s", id, SUFFIX));
+        Segment segment = map(id, file);
+        segment.buf.putInt(0, MAGIC);
+        segment.buf.putInt(4, SEGMENT_HEADER);
+        segment.readPos = SEGMENT_HEADER;
+        segment.writePos = SEGMENT_HEADER;
+        return segment;
+    }
+
+    private Segment map(long id, File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(segmentBytes);
+            MappedByteBuffer buf = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            return new Segment(id, file, raf, buf);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 扫描已有分段，恢复读写位置；损坏或已读完的分段直接删除
+     */
+    private void recover() throws IOException {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(SUFFIX));
+        if (files == null) return;
+        Arrays.sort(files);
+        for (File file : files) {
+            long id;
+            try {
+                id = Long.parseLong(file.getName().substring(0, file.getName().length() - SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            if (file.length() != segmentBytes) {
+                // 分段大小配置变化，旧分段无法按新大小映射
+                file.delete();
+                continue;
+            }
+            Segment segment = map(id, file);
+            MappedByteBuffer buf = segment.buf;
+            int readPos = buf.getInt(4);
+            if (buf.getInt(0) != MAGIC || readPos < SEGMENT_HEADER || readPos > segmentBytes) {
+                closeQuietly(segment);
+                file.delete();
+                continue;
+            }
+
+            int pos = SEGMENT_HEADER;
+            int pending = 0;
+            while (pos + 4 <= segmentBytes) {
+                int bodyLen = buf.getInt(pos);
+                if (bodyLen <= 0 || pos + 4 + bodyLen > segmentBytes) break;
+                if (pos >= readPos) pending++;
+                pos += 4 + bodyLen;
+            }
+            segment.readPos = Math.min(readPos, pos);
+            segment.writePos = pos;
+            segment.pending = pending;
+
+            if (pending == 0) {
+                closeQuietly(segment);
+                file.delete();
+                continue;
+            }
+            segments.addLast(segment);
+            pendingCount += pending;
+        }
+    }
+
+    private static void closeQuietly(Segment segment) {
+        try {
+            segment.raf.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.cvte.ciot.core.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 19:50
+ * @description PayloadCompressor
+ */
+
+/**
+ * 按大小阈值压缩 MQTT payload，格式为标准 gzip。
+ * <p>
+ * Deflater / Inflater 持有 native 内存，创建与释放代价高，这里用无锁池复用，
+ * 归还时 reset，池满时才 end。入站通过 gzip 魔数 (0x1f 0x8b) 识别，JSON 文本不会以该字节开头。
+ */
+public final class PayloadCompressor {
+
+    private static final int GZIP_MAGIC_0 = 0x1f;
+    private static final int GZIP_MAGIC_1 = 0x8b;
+    private static final int GZIP_HEADER = 10;
+    private static final int GZIP_TRAILER = 8;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private final int threshold;
+    private final int level;
+    private final int maxInflatedBytes;
+    private final int maxPooled;
+
+    private final ConcurrentLinkedQueue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Inflater> inflaters = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooledDeflaters = new AtomicInteger();
+    private final AtomicInteger pooledInflaters = new AtomicInteger();
+
+    private final AtomicLong compressedCount = new AtomicLong();
+    private final AtomicLong savedBytes = new AtomicLong();
+    private final AtomicLong decompressedCount = new AtomicLong();
+
+    /**
+     * @param threshold        超过该字节数才压缩
+     * @param level            压缩级别 (0-9，-1 为默认)
+     * @param maxInflatedBytes 解压后大小上限，防止压缩炸弹
+     * @param maxPooled        每种实例的池大小上限
+     */
+    public PayloadCompressor(int threshold, int level, int maxInflatedBytes, int maxPooled) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("threshold must be positive: " + threshold);
+        }
+        this.threshold = threshold;
+        this.level = level;
+        this.maxInflatedBytes = maxInflatedBytes;
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * @brief payload 是否为 gzip 格式
+     */
+    public static boolean isCompressed(byte[] payload) {
+        return payload != null && payload.length >= GZIP_HEADER + GZIP_TRAILER
+                && (payload[0] & 0xff) == GZIP_MAGIC_0 && (payload[1] & 0xff) == GZIP_MAGIC_1;
+    }
+
+    /**
+     * @brief 超过阈值时压缩，压缩后没有变小则返回原数组
+     */
+    public byte[] compress(byte[] payload) {
+        if (payload.length <= threshold) return payload;
+
+        Deflater deflater = borrowDeflater();
+        try {
+            deflater.setInput(payload);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length / 2 + GZIP_HEADER + GZIP_TRAILER);
+            out.write(new byte[]{(byte) GZIP_MAGIC_0, (byte) GZIP_MAGIC_1, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff}, 0, GZIP_HEADER);
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(chunk);
+                out.write(chunk, 0, n);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(payload, 0, payload.length);
+            writeIntLE(out, (int) crc.getValue());
+            writeIntLE(out, payload.length);
+
+            if (out.size() >= payload.length) return payload;
+            compressedCount.incrementAndGet();
+            savedBytes.addAndGet(payload.length - out.size());
+            return out.toByteArray();
+        } finally {
+            returnDeflater(deflater);
+        }
+    }
+
+    /**
+     * @brief gzip 格式的 payload 解压，其余原样返回
+     * @throws IllegalArgumentException 数据损坏或超过解压大小上限
+     */
+    public byte[] decompress(byte[] payload) {
+        if (!isCompressed(payload)) return payload;
+
+        int pos;
+        try {
+            pos = skipHeader(payload);
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Corrupt gzip header");
+        }
+        Inflater inflater = borrowInflater();
+        try {
+            inflater.setInput(payload, pos, payload.length - pos - GZIP_TRAILER);
+            int expected = readIntLE(payload, payload.length - 4);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(
+                    expected > 0 && expected <= maxInflatedBytes ? expected : payload.length * 4);
+            byte[] chunk = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(chunk);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Truncated gzip payload");
+                }
+                if (out.size() + n > maxInflatedBytes) {
+                    throw new IllegalArgumentException("Inflated payload exceeds " + maxInflatedBytes + " bytes");
+                }
+                out.write(chunk, 0, n);
+            }
+            byte[] result = out.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(result, 0, result.length);
+            if ((int) crc.getValue() != readIntLE(payload, payload.length - GZIP_TRAILER)) {
+                throw new IllegalArgumentException("Corrupt gzip payload: CRC mismatch");
+            }
+            decompressedCount.incrementAndGet();
+            return result;
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt gzip payload", e);
+        } finally {
+            returnInflater(inflater);
+        }
+    }
+
+    /**
+     * @brief 统计: 压缩条数、节省字节数、解压条数
+     */
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("compressed", compressedCount.get());
+        stats.put("savedBytes", savedBytes.get());
+        stats.put("decompressed", decompressedCount.get());
+        return stats;
+    }
+
+    // ------------------------------------------------------------------
+
+    private Deflater borrowDeflater() {
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) return new Deflater(level, true);
+        pooledDeflaters.decrementAndGet();
+        return deflater;
+    }
+
+    private void returnDeflater(Deflater deflater) {
+        deflater.reset();
+        if (pooledDeflaters.incrementAndGet() <= maxPooled) {
+            deflaters.offer(deflater);
+        } else {
+            pooledDeflaters.decrementAndGet();
+            deflater.end();
+        }
+    }
+
+    private Inflater borrowInflater() {
+        Inflater inflater = inflaters.poll();
+        if (inflater == null) return new Inflater(true);
+        pooledInflaters.decrementAndGet();
+        return inflater;
+    }
+
+    private void returnInflater(Inflater inflater) {
+        inflater.reset();
+        if (pooledInflaters.incrementAndGet() <= maxPooled) {
+            inflaters.offer(inflater);
+        } else {
+            pooledInflaters.decrementAndGet();
+            inflater.end();
+        }
+    }
+
+    private static int skipHeader(byte[] b) {
+        if (b[2] != Deflater.DEFLATED) {
+            throw new IllegalArgumentException("Unsupported gzip compression method: " + b[2]);
+        }
+        int flags = b[3] & 0xff;
+        int pos = GZIP_HEADER;
+        if ((flags & FEXTRA) != 0) {
+            pos += 2 + ((b[pos] & 0xff) | (b[pos + 1] & 0xff) << 8);
+        }
+        if ((flags & FNAME) != 0) {
+            while (b[pos++] != 0) {
+                // 跳过文件名
+            }
+        }
+        if ((flags & FCOMMENT) != 0) {
+            while (b[pos++] != 0) {
+                // 跳过注释
+            }
+        }
+        if ((flags & FHCRC) != 0) {
+            pos += 2;
+        }
+        if (pos > b.length - GZIP_TRAILER) {
+            throw new IllegalArgumentException("Corrupt gzip header");
+        }
+        return pos;
+    }
+
+    private static void writeIntLE(ByteArrayOutputStream out, int v) {
+        out.write(v);
+        out.write(v >>> 8);
+        out.write(v >>> 16);
+        out.write(v >>> 24);
+    }
+
+    private static int readIntLE(byte[] b, int pos) {
+        return (b[pos] & 0xff) | (b[pos + 1] & 0xff) << 8 | (b[pos + 2] & 0xff) << 16 | (b[pos + 3] & 0xff) << 24;
+    }
+}
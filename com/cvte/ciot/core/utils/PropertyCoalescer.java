@@ -0,0 +1,167 @@
+package com.cvte.ciot.core.utils;
+
+import com.cvte.ciot.core.model.tsl.TslBasic;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 19:05
+ * @description PropertyCoalescer
+ */
+
+/**
+ * 属性上报合并器。
+ * <p>
+ * 按设备缓存窗口期内上报的属性，同一属性只保留最新值；窗口到期或属性数达到上限时合并为一条 params 发出。
+ * 每个设备的合并与发出在同一把锁内完成，保证同一设备的上报顺序。
+ * params 不是 JSON Object 时不参与合并，由调用方经 {@link #sendDirect} 直接发送。
+ */
+public final class PropertyCoalescer {
+
+    /**
+     * 合并结果的发送方
+     */
+    public interface Flusher {
+        void flush(TslBasic basic, String params);
+    }
+
+    private static final class Buffer {
+        final Map<String, JsonElement> values = new LinkedHashMap<>();
+        TslBasic basic;
+        ScheduledFuture<?> scheduled;
+    }
+
+    private final long windowMillis;
+    private final int maxKeys;
+    private final ScheduledExecutorService scheduler;
+    private final Flusher flusher;
+    private final JsonParser parser = new JsonParser();
+    private final ConcurrentHashMap<String, Buffer> buffers = new ConcurrentHashMap<>();
+
+    private final AtomicLong offeredCount = new AtomicLong();
+    private final AtomicLong flushedCount = new AtomicLong();
+
+    public PropertyCoalescer(long windowMillis, int maxKeys, ScheduledExecutorService scheduler, Flusher flusher) {
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("windowMillis must be positive: " + windowMillis);
+        }
+        if (maxKeys <= 0) {
+            throw new IllegalArgumentException("maxKeys must be positive: " + maxKeys);
+        }
+        this.windowMillis = windowMillis;
+        this.maxKeys = maxKeys;
+        this.scheduler = scheduler;
+        this.flusher = flusher;
+    }
+
+    /**
+     * @brief 提交一次属性上报
+     * @return false 表示 params 无法合并，调用方应直接发送
+     */
+    @SuppressWarnings("deprecation")
+    public boolean offer(TslBasic basic, String params) {
+        JsonObject object;
+        try {
+            JsonElement element = parser.parse(params);
+            if (!element.isJsonObject()) return false;
+            object = element.getAsJsonObject();
+        } catch (JsonParseException e) {
+            return false;
+        }
+        if (object.size() == 0) return false;
+
+        Buffer buffer = buffers.computeIfAbsent(basic.getDeviceId(), k -> new Buffer());
+        synchronized (buffer) {
+            if (buffer.values.isEmpty()) {
+                buffer.basic = basic;
+                try {
+                    buffer.scheduled = scheduler.schedule(() -> flush(buffer), windowMillis, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    // 调度器已关闭，不再合并
+                    return false;
+                }
+            }
+            for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                // 已存在的属性只更新值，保持首次出现的位置
+                buffer.values.put(entry.getKey(), entry.getValue());
+            }
+            offeredCount.incrementAndGet();
+            if (buffer.values.size() >= maxKeys) {
+                buffer.scheduled.cancel(false);
+                flushLocked(buffer);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @brief 不经合并直接发送：先发出该设备缓存中的属性，再在同一把锁内调用 send，
+     * 避免更早缓存的值在 send 之后发出而覆盖其中的新值
+     * @return send 的返回值
+     */
+    public boolean sendDirect(String deviceId, BooleanSupplier send) {
+        Buffer buffer = buffers.computeIfAbsent(deviceId, k -> new Buffer());
+        synchronized (buffer) {
+            if (buffer.scheduled != null) buffer.scheduled.cancel(false);
+            flushLocked(buffer);
+            return send.getAsBoolean();
+        }
+    }
+
+    /**
+     * @brief 立即发出所有设备缓存中的属性
+     */
+    public void flushAll() {
+        for (Buffer buffer : buffers.values()) {
+            flush(buffer);
+        }
+    }
+
+    /**
+     * @brief 统计: 提交次数、实际发出的消息数
+     */
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("offered", offeredCount.get());
+        stats.put("flushed", flushedCount.get());
+        return stats;
+    }
+
+    private void flush(Buffer buffer) {
+        synchronized (buffer) {
+            flushLocked(buffer);
+        }
+    }
+
+    private void flushLocked(Buffer buffer) {
+        if (buffer.values.isEmpty()) return;
+        JsonObject merged = new JsonObject();
+        for (Map.Entry<String, JsonElement> entry : buffer.values.entrySet()) {
+            merged.add(entry.getKey(), entry.getValue());
+        }
+        TslBasic basic = buffer.basic;
+        buffer.values.clear();
+        buffer.basic = null;
+        buffer.scheduled = null;
+
+        flushedCount.incrementAndGet();
+        try {
+            flusher.flush(basic, merged.toString());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
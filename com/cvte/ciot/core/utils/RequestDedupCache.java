@@ -0,0 +1,183 @@
+package com.cvte.ciot.core.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 16:45
+ * @description RequestDedupCache
+ */
+
+/**
+ * 下行请求去重缓存。
+ * <p>
+ * CleanSession = false 时 Broker 会在重连后重投 QoS1 请求，同一请求以 Key 登记一次，
+ * 重复到达时直接取回首次处理的结果 (处理中则等待其完成)，不再调用处理器。
+ * <p>
+ * 查找走 ConcurrentHashMap 的无锁读；条目按登记顺序排队，超过时间窗口、总数超过容量
+ * 或已完成结果的总大小超过字节上限时从队头淘汰。单个结果超过字节上限时不保留，重复到达的请求重新处理。
+ */
+public final class RequestDedupCache<V> {
+
+    // Entry.weight 的两个特殊值: 结果尚未完成、条目已淘汰
+    private static final long UNWEIGHED = -1;
+    private static final long REMOVED = -2;
+
+    private static final class Entry<V> {
+        final String key;
+        final long expiresAt;
+        final CompletableFuture<V> result;
+        // 结果的大小，完成后才计入总字节数
+        final AtomicLong weight = new AtomicLong(UNWEIGHED);
+
+        Entry(String key, long expiresAt, CompletableFuture<V> result) {
+            this.key = key;
+            this.expiresAt = expiresAt;
+            this.result = result;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry<V>> order = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicLong oversizedCount = new AtomicLong();
+    private final int capacity;
+    private final long maxBytes;
+    private final ToIntFunction<? super V> weigher;
+    private final long windowNanos;
+
+    public RequestDedupCache(int capacity, long window, TimeUnit unit) {
+        this(capacity, Long.MAX_VALUE, value -> 0, window, unit);
+    }
+
+    /**
+     * @param capacity 条目数上限
+     * @param maxBytes 已完成结果的总大小上限
+     * @param weigher  结果的大小 (字节)
+     */
+    public RequestDedupCache(int capacity, long maxBytes, ToIntFunction<? super V> weigher, long window, TimeUnit unit) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+        }
+        if (window <= 0) {
+            throw new IllegalArgumentException("window must be positive: " + window);
+        }
+        this.capacity = capacity;
+        this.maxBytes = maxBytes;
+        this.weigher = weigher;
+        this.windowNanos = unit.toNanos(window);
+    }
+
+    /**
+     * @brief 登记一个请求
+     * @param key     请求标识
+     * @param pending 本次处理完成后要写入结果的 future
+     * @return 窗口内已登记过时返回首次处理的结果 future；首次出现返回 null，调用方负责完成 pending
+     */
+    public CompletableFuture<V> claim(String key, CompletableFuture<V> pending) {
+        long now = System.nanoTime();
+        Entry<V> existing = entries.get(key);
+        if (existing != null && !existing.isExpired(now)) {
+            hitCount.incrementAndGet();
+            return existing.result;
+        }
+
+        Entry<V> entry = new Entry<>(key, now + windowNanos, pending);
+        while (true) {
+            if (existing == null) {
+                existing = entries.putIfAbsent(key, entry);
+                if (existing == null) break;
+            } else if (entries.replace(key, existing, entry)) {
+                break;
+            } else {
+                existing = entries.get(key);
+            }
+            // 与并发登记竞争失败
+            if (existing != null && !existing.isExpired(now)) {
+                hitCount.incrementAndGet();
+                return existing.result;
+            }
+        }
+
+        order.offer(entry);
+        queued.incrementAndGet();
+        evict(now);
+        pending.whenComplete((value, error) -> onCompleted(entry, error == null ? value : null));
+        return null;
+    }
+
+    /**
+     * @brief 当前登记的请求数 (含已过期但尚未淘汰的)
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @brief 命中 (被判定为重复) 的次数
+     */
+    public long hits() {
+        return hitCount.get();
+    }
+
+    /**
+     * @brief 当前保留的结果总大小
+     */
+    public long bytes() {
+        return totalBytes.get();
+    }
+
+    /**
+     * @brief 因单个结果超过字节上限而未保留的次数
+     */
+    public long oversized() {
+        return oversizedCount.get();
+    }
+
+    private void onCompleted(Entry<V> entry, V value) {
+        long weight = value == null ? 0 : weigher.applyAsInt(value);
+        if (weight > maxBytes) {
+            // 保留它会挤掉其他全部结果，直接移除，队列中的位置随后正常出队
+            if (entry.weight.compareAndSet(UNWEIGHED, REMOVED)) {
+                oversizedCount.incrementAndGet();
+                entries.remove(entry.key, entry);
+            }
+            return;
+        }
+        // 完成前已被淘汰时不再计入
+        if (entry.weight.compareAndSet(UNWEIGHED, weight)) {
+            totalBytes.addAndGet(weight);
+            evict(System.nanoTime());
+        }
+    }
+
+    private void evict(long now) {
+        while (true) {
+            Entry<V> head = order.peek();
+            if (head == null) return;
+            if (queued.get() <= capacity && totalBytes.get() <= maxBytes && !head.isExpired(now)) return;
+            if (order.remove(head)) {
+                queued.decrementAndGet();
+                long weight = head.weight.getAndSet(REMOVED);
+                if (weight > 0) totalBytes.addAndGet(-weight);
+                // 已被新条目替换时不会误删
+                entries.remove(head.key, head);
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.cvte.ciot.core.utils;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 23:40
+ * @description ResponseCache
+ */
+
+/**
+ * 上行请求的响应缓存。
+ * <p>
+ * 只缓存配置了有效期的方法，每个方法单独设置 TTL；条目总数超过容量时淘汰最久未访问的 (LRU)。
+ * 过期条目在访问时移除。
+ * <p>
+ * 每个方法各有一个代数，失效操作推进对应方法的代数：失效前发出、失效后才返回的响应不会写入缓存，
+ * 避免把旧数据重新放回；其他方法进行中的请求不受影响。
+ */
+public final class ResponseCache<V> {
+
+    private static final class Entry<V> {
+        final String method;
+        final V value;
+        final long expiresAt;
+
+        Entry(String method, V value, long expiresAt) {
+            this.method = method;
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+
+    private final int capacity;
+    private final Map<String, Long> ttlNanos = new HashMap<>();
+    private final LinkedHashMap<String, Entry<V>> entries;
+    // 方法 -> 代数，只包含配置了缓存的方法
+    private final Map<String, Long> generations = new HashMap<>();
+
+    private long hitCount;
+    private long missCount;
+    private long evictedCount;
+    private long expiredCount;
+
+    /**
+     * @param capacity 条目总数上限
+     * @param ttls     方法 -> 有效期，未列出或有效期不为正的方法不缓存
+     */
+    public ResponseCache(int capacity, Map<String, Long> ttls, TimeUnit unit) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        for (Map.Entry<String, Long> ttl : ttls.entrySet()) {
+            if (ttl.getValue() > 0) {
+                ttlNanos.put(ttl.getKey(), unit.toNanos(ttl.getValue()));
+                generations.put(ttl.getKey(), 0L);
+            }
+        }
+        this.entries = new LinkedHashMap<String, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+                if (size() <= ResponseCache.this.capacity) return false;
+                evictedCount++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @brief 该方法是否配置了缓存
+     */
+    public boolean isCacheable(String method) {
+        return ttlNanos.containsKey(method);
+    }
+
+    /**
+     * @brief 取未过期的缓存值，未命中返回 null
+     */
+    public synchronized V get(String key, long nowNanos) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+        if (entry.isExpired(nowNanos)) {
+            entries.remove(key);
+            expiredCount++;
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return entry.value;
+    }
+
+    /**
+     * @brief 方法的当前代数，发出请求前取得，写入时传回
+     */
+    public synchronized long generation(String method) {
+        Long generation = generations.get(method);
+        return generation != null ? generation : 0L;
+    }
+
+    /**
+     * @brief 写入响应；取得 generation 之后该方法发生过失效时丢弃
+     */
+    public synchronized void put(String method, String key, V value, long generation, long nowNanos) {
+        Long ttl = ttlNanos.get(method);
+        if (ttl == null || generation != generations.get(method)) return;
+        entries.put(key, new Entry<>(method, value, nowNanos + ttl));
+    }
+
+    /**
+     * @brief 移除某个方法的全部缓存
+     */
+    public synchronized void invalidate(String method) {
+        Long generation = generations.get(method);
+        if (generation == null) return;
+        generations.put(method, generation + 1);
+        Iterator<Entry<V>> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().method.equals(method)) it.remove();
+        }
+    }
+
+    /**
+     * @brief 清空缓存
+     */
+    public synchronized void invalidateAll() {
+        generations.replaceAll((method, generation) -> generation + 1);
+        entries.clear();
+    }
+
+    /**
+     * @brief 命中、未命中、淘汰、过期次数与当前条目数
+     */
+    public synchronized Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("hit", hitCount);
+        stats.put("miss", missCount);
+        stats.put("evicted", evictedCount);
+        stats.put("expired", expiredCount);
+        stats.put("size", (long) entries.size());
+        return stats;
+    }
+}
@@ -0,0 +1,120 @@
+package com.cvte.ciot.core.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 23:05
+ * @description SingleFlight
+ */
+
+/**
+ * 相同 Key 的并发调用合并为一次。
+ * <p>
+ * 某个 Key 没有进行中的调用时由当前调用方发起，之后到达的相同调用不再发起，而是等待同一个结果；
+ * 调用完成后移除该 Key，下一次调用重新发起。
+ * <p>
+ * 每个调用方拿到各自的 future，取消只影响自己；所有调用方都取消后才取消底层调用。
+ */
+public final class SingleFlight<K, V> {
+
+    private static final class Flight<V> {
+        final CompletableFuture<V> result = new CompletableFuture<>();
+        // 等待中的调用方数，-1 表示已全部取消，不再接受新的调用方
+        final AtomicInteger waiters = new AtomicInteger();
+
+        boolean join() {
+            while (true) {
+                int n = waiters.get();
+                if (n < 0) return false;
+                if (waiters.compareAndSet(n, n + 1)) return true;
+            }
+        }
+
+        void leave() {
+            if (waiters.decrementAndGet() == 0 && waiters.compareAndSet(0, -1)) {
+                result.cancel(false);
+            }
+        }
+
+        CompletableFuture<V> newWaiter() {
+            CompletableFuture<V> waiter = new CompletableFuture<>();
+            result.whenComplete((value, error) -> {
+                if (error != null) {
+                    waiter.completeExceptionally(error);
+                } else {
+                    waiter.complete(value);
+                }
+            });
+            waiter.whenComplete((value, error) -> {
+                if (waiter.isCancelled()) leave();
+            });
+            return waiter;
+        }
+    }
+
+    private final ConcurrentHashMap<K, Flight<V>> flights = new ConcurrentHashMap<>();
+    private final AtomicLong issuedCount = new AtomicLong();
+    private final AtomicLong sharedCount = new AtomicLong();
+
+    /**
+     * @brief 以 key 执行 call，已有相同 key 的调用进行中时直接等待其结果
+     * @param call 实际发起调用，返回的 future 在所有调用方取消时被取消
+     */
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> call) {
+        while (true) {
+            Flight<V> created = new Flight<>();
+            Flight<V> existing = flights.putIfAbsent(key, created);
+            if (existing != null) {
+                if (existing.join()) {
+                    sharedCount.incrementAndGet();
+                    return existing.newWaiter();
+                }
+                // 该调用的调用方已全部取消，由当前调用方重新发起
+                flights.remove(key, existing);
+                continue;
+            }
+
+            created.join();
+            issuedCount.incrementAndGet();
+            CompletableFuture<V> waiter = created.newWaiter();
+            CompletableFuture<V> pending;
+            try {
+                pending = call.get();
+            } catch (RuntimeException e) {
+                flights.remove(key, created);
+                created.result.completeExceptionally(e);
+                return waiter;
+            }
+            pending.whenComplete((value, error) -> {
+                flights.remove(key, created);
+                if (error != null) {
+                    created.result.completeExceptionally(error);
+                } else {
+                    created.result.complete(value);
+                }
+            });
+            created.result.whenComplete((value, error) -> {
+                if (created.result.isCancelled()) pending.cancel(false);
+            });
+            return waiter;
+        }
+    }
+
+    /**
+     * @brief 实际发起的调用数、被合并的调用数与当前进行中的 Key 数
+     */
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("issued", issuedCount.get());
+        stats.put("shared", sharedCount.get());
+        stats.put("inFlight", (long) flights.size());
+        return stats;
+    }
+}
@@ -0,0 +1,96 @@
+package com.cvte.ciot.core.utils;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 21:10
+ * @description TokenBucketLimiter
+ */
+
+/**
+ * 按 Key 的令牌桶限速器，预约式: 令牌不足时不拒绝，而是返回该消息可以发出的等待时间，
+ * 并提前扣除令牌，后续消息顺延。同一 Key 的预约时间单调递增，因此排队后仍保持原有顺序。
+ * <p>
+ * 每个桶只保存下一个令牌的理论到达时间 (GCRA)，已回满的桶与新桶等价，Key 过多时清理。
+ * 非线程安全，{@link #reserve} 只允许单个线程调用 (上行调度线程)。
+ */
+public final class TokenBucketLimiter {
+
+    private static final int SWEEP_THRESHOLD = 4096;
+
+    private static final class Bucket {
+        long tat;
+
+        Bucket(long tat) {
+            this.tat = tat;
+        }
+    }
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final Map<Object, Bucket> buckets = new HashMap<>();
+    private int sweepAt = SWEEP_THRESHOLD;
+
+    // 单线程写入，stats 可在其他线程读取
+    private volatile long throttledCount;
+    private volatile long throttledNanos;
+
+    /**
+     * @param permitsPerSecond 每秒补充的令牌数
+     * @param burst            桶容量，即允许的突发条数
+     */
+    public TokenBucketLimiter(double permitsPerSecond, int burst) {
+        if (!(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive: " + permitsPerSecond);
+        }
+        if (burst <= 0) {
+            throw new IllegalArgumentException("burst must be positive: " + burst);
+        }
+        this.intervalNanos = Math.max(1L, (long) (1_000_000_000L / permitsPerSecond));
+        this.toleranceNanos = intervalNanos * (burst - 1);
+    }
+
+    /**
+     * @brief 为 key 预约一个令牌
+     * @return 需要等待的纳秒数，0 表示可以立即发出
+     */
+    public long reserve(Object key, long nowNanos) {
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= sweepAt) sweep(nowNanos);
+            bucket = new Bucket(nowNanos);
+            buckets.put(key, bucket);
+        }
+        long tat = Math.max(bucket.tat, nowNanos);
+        long wait = tat - toleranceNanos - nowNanos;
+        bucket.tat = tat + intervalNanos;
+        if (wait <= 0) return 0L;
+        throttledCount++;
+        throttledNanos += wait;
+        return wait;
+    }
+
+    /**
+     * @brief 统计: 被限速的消息数、累计限速等待时间 (毫秒)、当前桶数
+     */
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("throttled", throttledCount);
+        stats.put("throttledMs", throttledNanos / 1_000_000L);
+        stats.put("buckets", (long) buckets.size());
+        return stats;
+    }
+
+    private void sweep(long nowNanos) {
+        Iterator<Bucket> it = buckets.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().tat <= nowNanos) it.remove();
+        }
+        // 活跃的 Key 本身就很多时放宽阈值，避免每次新建桶都全量扫描
+        sweepAt = Math.max(SWEEP_THRESHOLD, buckets.size() * 2);
+    }
+}
@@ -1,5 +1,8 @@
 package com.cvte.ciot.core.utils;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * @author AnswerDev
  * @date 2025/12/7 12:45
@@ -8,17 +11,24 @@ package com.cvte.ciot.core.utils;
 
 public class TopicParser {
 
+    /** 单 Filter 编译结果缓存上限，超出后整体清空重建 */
+    private static final int FILTER_CACHE_LIMIT = 256;
+    private static final Map<String, TopicTrie<Boolean>> FILTER_CACHE = new ConcurrentHashMap<>();
+
     /**
-     * @brief 简化版 Topic 匹配，用于区分消息类型
+     * @brief 完整的 MQTT Topic 匹配，支持 "+" 与 "#"，与入站路由使用同一套 {@link TopicTrie}
      */
     public static boolean match(String topicFilter, String topic) {
-        // 简化实现: 仅检查前缀和通配符 "+" 的位置
-        if (topicFilter.contains("+") || topicFilter.contains("#")) {
-            // 实际应实现完整的 MQTT topic 匹配逻辑
-            if (topicFilter.startsWith("/sys/+/+/rpc/request/") && topic.contains("/rpc/request/")) return true;
-            if (topicFilter.startsWith("/sys/+/+/up/response/") && topic.contains("/up/response/")) return true;
+        if (topicFilter.indexOf('+') < 0 && topicFilter.indexOf('#') < 0) {
+            return topicFilter.equals(topic);
         }
-        return topicFilter.equals(topic);
+        TopicTrie<Boolean> trie = FILTER_CACHE.get(topicFilter);
+        if (trie == null) {
+            if (FILTER_CACHE.size() >= FILTER_CACHE_LIMIT) FILTER_CACHE.clear();
+            trie = TopicTrie.<Boolean>builder().add(topicFilter, Boolean.TRUE).build();
+            FILTER_CACHE.put(topicFilter, trie);
+        }
+        return trie.match(topic) != null;
     }
 
     /**
@@ -42,11 +52,14 @@ public class TopicParser {
      * @brief 从 Topic 中提取 deviceId: /sys/{pk}/{did}/...
      */
     public static String getDeviceIdFromTopic(String topic) {
-        String[] parts = topic.split("/");
-        if (parts.length > 3) {
-            return parts[3]; // parts[0]="", parts[1]="sys", parts[2]="pk", parts[3]="did"
+        // 定位第 3 个 '/'，其后一级即为 did: ""/"sys"/"pk"/"did"
+        int start = -1;
+        for (int i = 0; i < 3; i++) {
+            start = topic.indexOf('/', start + 1);
+            if (start < 0) return "";
         }
-        return "";
+        int end = topic.indexOf('/', start + 1);
+        return topic.substring(start + 1, end < 0 ? topic.length() : end);
     }
 
     /**
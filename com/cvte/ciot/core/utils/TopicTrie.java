@@ -0,0 +1,218 @@
+package com.cvte.ciot.core.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 10:12
+ * @description TopicTrie
+ */
+
+/**
+ * 编译后的 MQTT Topic Filter 前缀树，支持 "+" 与 "#" 通配符。
+ * <p>
+ * 通过 {@link Builder} 一次性构建，构建后只读，可在多线程间共享；订阅变化时重新构建整棵树并替换引用。
+ * 匹配按 Topic 层级逐级下降，每层只做一次定长哈希探测，不截取子串、不分配对象。
+ * 同一 Topic 命中多个 Filter 时，优先级为：精确层级 > "+" > "#"。
+ */
+public final class TopicTrie<V> {
+
+    private static final char SEPARATOR = '/';
+    private static final String SINGLE_LEVEL = "+";
+    private static final String MULTI_LEVEL = "#";
+
+    private final Node<V> root;
+    private final int size;
+
+    private TopicTrie(Node<V> root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    public static <V> Builder<V> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * @brief 已编译的 Filter 数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @brief 查找与 topic 匹配的 Filter 对应的值，未命中返回 null
+     */
+    public V match(String topic) {
+        if (topic == null || topic.isEmpty()) return null;
+        // MQTT 规范: "$" 开头的系统 Topic 不参与首层通配符匹配
+        boolean sysTopic = topic.charAt(0) == '$';
+        return match(root, topic, 0, sysTopic);
+    }
+
+    private static <V> V match(Node<V> node, String topic, int start, boolean noWildcard) {
+        if (start > topic.length()) {
+            // 所有层级已消费完: 精确结束 或 "parent/#" 匹配 parent 本身
+            return node.value != null ? node.value : node.multiValue;
+        }
+        int end = topic.indexOf(SEPARATOR, start);
+        if (end < 0) end = topic.length();
+
+        Node<V> literal = node.children.get(topic, start, end);
+        if (literal != null) {
+            V v = match(literal, topic, end + 1, false);
+            if (v != null) return v;
+        }
+        if (noWildcard) return null;
+
+        if (node.plus != null) {
+            V v = match(node.plus, topic, end + 1, false);
+            if (v != null) return v;
+        }
+        return node.multiValue;
+    }
+
+    // ------------------------------------------------------------------
+    // 构建
+    // ------------------------------------------------------------------
+
+    public static final class Builder<V> {
+        private final MutableNode<V> root = new MutableNode<>();
+        private int size;
+
+        /**
+         * @brief 添加一个 Topic Filter，重复添加时后者覆盖前者
+         * @throws IllegalArgumentException filter 不是合法的 MQTT Topic Filter
+         */
+        public Builder<V> add(String filter, V value) {
+            if (value == null) throw new IllegalArgumentException("value must not be null");
+            validate(filter);
+
+            MutableNode<V> node = root;
+            int start = 0;
+            while (true) {
+                int end = filter.indexOf(SEPARATOR, start);
+                String level = filter.substring(start, end < 0 ? filter.length() : end);
+                if (MULTI_LEVEL.equals(level)) {
+                    if (node.multiValue == null) size++;
+                    node.multiValue = value;
+                    return this;
+                }
+                node = SINGLE_LEVEL.equals(level)
+                        ? (node.plus != null ? node.plus : (node.plus = new MutableNode<>()))
+                        : node.children.computeIfAbsent(level, k -> new MutableNode<>());
+                if (end < 0) break;
+                start = end + 1;
+            }
+            if (node.value == null) size++;
+            node.value = value;
+            return this;
+        }
+
+        public TopicTrie<V> build() {
+            return new TopicTrie<>(root.compile(), size);
+        }
+
+        private static void validate(String filter) {
+            if (filter == null || filter.isEmpty()) {
+                throw new IllegalArgumentException("Topic filter must not be empty");
+            }
+            int start = 0;
+            while (true) {
+                int end = filter.indexOf(SEPARATOR, start);
+                int levelEnd = end < 0 ? filter.length() : end;
+                for (int i = start; i < levelEnd; i++) {
+                    char c = filter.charAt(i);
+                    if ((c == '+' || c == '#') && levelEnd - start != 1) {
+                        throw new IllegalArgumentException("Wildcard must occupy a whole level: " + filter);
+                    }
+                    if (c == '#' && end >= 0) {
+                        throw new IllegalArgumentException("'#' must be the last level: " + filter);
+                    }
+                }
+                if (end < 0) return;
+                start = end + 1;
+            }
+        }
+    }
+
+    private static final class MutableNode<V> {
+        final Map<String, MutableNode<V>> children = new HashMap<>();
+        MutableNode<V> plus;
+        V value;
+        V multiValue;
+
+        Node<V> compile() {
+            List<String> keys = new ArrayList<>(children.keySet());
+            List<Node<V>> nodes = new ArrayList<>(keys.size());
+            for (String key : keys) {
+                nodes.add(children.get(key).compile());
+            }
+            return new Node<>(new LevelTable<>(keys, nodes), plus != null ? plus.compile() : null, value, multiValue);
+        }
+    }
+
+    private static final class Node<V> {
+        final LevelTable<V> children;
+        final Node<V> plus;
+        final V value;
+        final V multiValue;
+
+        Node(LevelTable<V> children, Node<V> plus, V value, V multiValue) {
+            this.children = children;
+            this.plus = plus;
+            this.value = value;
+            this.multiValue = multiValue;
+        }
+    }
+
+    /**
+     * 只读开放寻址表，以 topic 中 [start, end) 区间直接做哈希与比较，避免为每个层级创建子串。
+     */
+    private static final class LevelTable<V> {
+        private final String[] keys;
+        private final Object[] nodes;
+        private final int mask;
+
+        LevelTable(List<String> keyList, List<Node<V>> nodeList) {
+            int capacity = 2;
+            while (capacity < keyList.size() * 2) capacity <<= 1;
+            keys = new String[capacity];
+            nodes = new Object[capacity];
+            mask = capacity - 1;
+            for (int i = 0; i < keyList.size(); i++) {
+                String key = keyList.get(i);
+                int slot = hash(key, 0, key.length()) & mask;
+                while (keys[slot] != null) slot = (slot + 1) & mask;
+                keys[slot] = key;
+                nodes[slot] = nodeList.get(i);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        Node<V> get(String topic, int start, int end) {
+            int len = end - start;
+            int slot = hash(topic, start, end) & mask;
+            String key;
+            while ((key = keys[slot]) != null) {
+                if (key.length() == len && topic.regionMatches(start, key, 0, len)) {
+                    return (Node<V>) nodes[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        /** 与 String.hashCode 相同的算法，再做一次高位扰动 */
+        private static int hash(String s, int start, int end) {
+            int h = 0;
+            for (int i = start; i < end; i++) {
+                h = 31 * h + s.charAt(i);
+            }
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.cvte.ciot.core.utils;
+
+import com.cvte.ciot.core.model.tsl.TslBasic;
+import com.cvte.ciot.core.model.tsl.TslRawRequest;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 14:05
+ * @description TslByteDecoder
+ */
+
+/**
+ * 直接在 MQTT payload 字节上解析 TSL 下行请求。
+ * <p>
+ * 只解码 traceId / version / method 三个短字段，params 仅记录其在 payload 中的区间，
+ * 不构建 Gson 树、不把整个 payload 转为 String。JSON 结构字符均为 ASCII，按字节扫描对 UTF-8 安全。
+ */
+public final class TslByteDecoder {
+
+    private static final byte[] KEY_TRACEID = "traceId".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] KEY_VERSION = "version".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] KEY_METHOD = "method".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] KEY_PARAMS = "params".getBytes(StandardCharsets.UTF_8);
+
+    private TslByteDecoder() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * @brief 解析下行请求，失败返回 false
+     */
+    public static boolean decodeRequest(byte[] payload, TslBasic basic, TslRawRequest req) {
+        if (payload == null || payload.length == 0) return false;
+        try {
+            req.setPayload(payload);
+            req.setParamsOffset(0);
+            req.setParamsLength(0);
+
+            int i = skipWs(payload, 0);
+            if (payload[i] != '{') return false;
+            i = skipWs(payload, i + 1);
+            if (payload[i] == '}') return true;
+
+            while (true) {
+                if (payload[i] != '"') return false;
+                int keyStart = i + 1;
+                int keyEnd = skipString(payload, i) - 1;
+                i = skipWs(payload, keyEnd + 1);
+                if (payload[i] != ':') return false;
+                int valueStart = skipWs(payload, i + 1);
+                int valueEnd = skipValue(payload, valueStart);
+
+                if (keyEquals(payload, keyStart, keyEnd, KEY_TRACEID)) {
+                    basic.setTraceId(scalarToString(payload, valueStart, valueEnd));
+                } else if (keyEquals(payload, keyStart, keyEnd, KEY_VERSION)) {
+                    basic.setVersion(scalarToString(payload, valueStart, valueEnd));
+                } else if (keyEquals(payload, keyStart, keyEnd, KEY_METHOD)) {
+                    req.setMethod(scalarToString(payload, valueStart, valueEnd));
+                } else if (keyEquals(payload, keyStart, keyEnd, KEY_PARAMS)) {
+                    if (!isNullLiteral(payload, valueStart, valueEnd)) {
+                        req.setParamsOffset(valueStart);
+                        req.setParamsLength(valueEnd - valueStart);
+                    }
+                }
+
+                i = skipWs(payload, valueEnd);
+                if (payload[i] == ',') {
+                    i = skipWs(payload, i + 1);
+                } else if (payload[i] == '}') {
+                    return true;
+                } else {
+                    return false;
+                }
+            }
+        } catch (IndexOutOfBoundsException | NumberFormatException e) {
+            // 截断或格式错误的 JSON、错误的 \\u 转义
+            return false;
+        }
+    }
+
+    /**
+     * @brief 将 [start, end) 区间的 JSON 值转为字符串：字符串去引号并反转义，其他值原样返回
+     * @throws NumberFormatException 字符串中的 \\u 转义格式错误
+     */
+    public static String valueToString(byte[] payload, int start, int end) {
+        return scalarToString(payload, start, end);
+    }
+
+    // ------------------------------------------------------------------
+
+    private static int skipWs(byte[] b, int i) {
+        while (true) {
+            byte c = b[i];
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') return i;
+            i++;
+        }
+    }
+
+    /** i 指向起始引号，返回结束引号之后的位置 */
+    private static int skipString(byte[] b, int i) {
+        i++;
+        while (true) {
+            byte c = b[i];
+            if (c == '\\') {
+                i += 2;
+            } else if (c == '"') {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /** 返回值结束后的位置 */
+    private static int skipValue(byte[] b, int i) {
+        byte c = b[i];
+        if (c == '"') return skipString(b, i);
+        if (c == '{' || c == '[') {
+            int depth = 0;
+            while (true) {
+                c = b[i];
+                if (c == '"') {
+                    i = skipString(b, i);
+                    continue;
+                }
+                if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    if (--depth == 0) return i + 1;
+                }
+                i++;
+            }
+        }
+        // 数字 / true / false / null
+        while (i < b.length) {
+            c = b[i];
+            if (c == ',' || c == '}' || c == ']' || c == ' ' || c == '\t' || c == '\n' || c == '\r') break;
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean keyEquals(byte[] b, int start, int end, byte[] key) {
+        if (end - start != key.length) return false;
+        for (int k = 0; k < key.length; k++) {
+            if (b[start + k] != key[k]) return false;
+        }
+        return true;
+    }
+
+    private static boolean isNullLiteral(byte[] b, int start, int end) {
+        return end - start == 4 && b[start] == 'n' && b[start + 1] == 'u' && b[start + 2] == 'l' && b[start + 3] == 'l';
+    }
+
+    private static String scalarToString(byte[] b, int start, int end) {
+        if (b[start] != '"') {
+            return new String(b, start, end - start, StandardCharsets.UTF_8);
+        }
+        int contentStart = start + 1;
+        int contentEnd = end - 1;
+        int escape = -1;
+        for (int k = contentStart; k < contentEnd; k++) {
+            if (b[k] == '\\') {
+                escape = k;
+                break;
+            }
+        }
+        if (escape < 0) {
+            return new String(b, contentStart, contentEnd - contentStart, StandardCharsets.UTF_8);
+        }
+        return unescape(b, contentStart, contentEnd, escape);
+    }
+
+    private static String unescape(byte[] b, int start, int end, int firstEscape) {
+        StringBuilder sb = new StringBuilder(end - start);
+        int segment = start;
+        int k = firstEscape;
+        while (k < end) {
+            if (b[k] != '\\') {
+                k++;
+                continue;
+            }
+            sb.append(new String(b, segment, k - segment, StandardCharsets.UTF_8));
+            byte e = b[k + 1];
+            switch (e) {
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'u':
+                    sb.append(parseHex4(b, k + 2, end));
+                    k += 4;
+                    break;
+                default: sb.append((char) e); break; // \" \\ \/
+            }
+            k += 2;
+            segment = k;
+        }
+        sb.append(new String(b, segment, end - segment, StandardCharsets.UTF_8));
+        return sb.toString();
+    }
+
+    /** 解析 \\u 之后的 4 位十六进制数，不接受正负号，越过字符串末尾或含非十六进制字符时抛出 NumberFormatException */
+    private static char parseHex4(byte[] b, int i, int end) {
+        if (i + 4 > end) {
+            throw new NumberFormatException("Truncated \\u escape");
+        }
+        int value = 0;
+        for (int k = i; k < i + 4; k++) {
+            int digit = Character.digit(b[k], 16);
+            if (digit < 0) {
+                throw new NumberFormatException("Bad \\u escape: " + new String(b, i, 4, StandardCharsets.US_ASCII));
+            }
+            value = (value << 4) | digit;
+        }
+        return (char) value;
+    }
+}
@@ -0,0 +1,117 @@
+package com.cvte.ciot.core.utils;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 15:10
+ * @description TslMethodRegistry
+ */
+
+/**
+ * TSL 下行方法 -> 处理器注册表。
+ * <p>
+ * 精确方法名一次哈希查找命中；未命中时按前缀兜底（最长前缀优先，前缀通常只有个位数）；
+ * 均未命中返回 null，调用方据此直接拒绝，无需再逐个比较方法名。
+ * <p>
+ * 内置方法以 {@link #registerBuiltin} 注册，全名与简称都不能再被覆盖或移除。
+ */
+public final class TslMethodRegistry<H> {
+
+    private static final class PrefixEntry<H> {
+        final String prefix;
+        final H handler;
+
+        PrefixEntry(String prefix, H handler) {
+            this.prefix = prefix;
+            this.handler = handler;
+        }
+    }
+
+    private final ConcurrentHashMap<String, H> exact = new ConcurrentHashMap<>();
+    private final Set<String> builtins = ConcurrentHashMap.newKeySet();
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private volatile PrefixEntry<H>[] prefixes = new PrefixEntry[0];
+
+    /**
+     * @brief 注册精确方法名的处理器，handler 为 null 时移除
+     * @throws IllegalArgumentException method 是内置方法的全名或简称
+     */
+    public void register(String method, H handler) {
+        if (builtins.contains(method)) {
+            throw new IllegalArgumentException("Built-in method cannot be overridden: " + method);
+        }
+        if (handler == null) {
+            exact.remove(method);
+        } else {
+            exact.put(method, handler);
+        }
+    }
+
+    /**
+     * @brief 同时注册全名与标识符简称 (thing.service.xxx -> xxx)
+     */
+    public void registerWithIdentifier(String method, H handler) {
+        String identifier = identifierOf(method);
+        // 先检查简称，避免只注册了全名
+        if (identifier != null && builtins.contains(identifier)) {
+            throw new IllegalArgumentException("Built-in method cannot be overridden: " + identifier);
+        }
+        register(method, handler);
+        if (identifier != null) register(identifier, handler);
+    }
+
+    /**
+     * @brief 注册内置方法的全名与简称，之后两者都不能再被 {@link #register} 覆盖或移除
+     */
+    public void registerBuiltin(String method, H handler) {
+        registerWithIdentifier(method, handler);
+        builtins.add(method);
+        String identifier = identifierOf(method);
+        if (identifier != null) builtins.add(identifier);
+    }
+
+    /**
+     * @brief method 是否为内置方法的全名或简称
+     */
+    public boolean isBuiltin(String method) {
+        return builtins.contains(method);
+    }
+
+    /**
+     * @brief 注册前缀兜底处理器，handler 为 null 时移除
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public synchronized void registerPrefix(String prefix, H handler) {
+        PrefixEntry<H>[] next = Arrays.stream(prefixes)
+                .filter(e -> !e.prefix.equals(prefix))
+                .toArray(PrefixEntry[]::new);
+        if (handler != null) {
+            next = Arrays.copyOf(next, next.length + 1);
+            next[next.length - 1] = new PrefixEntry<>(prefix, handler);
+            // 最长前缀优先
+            Arrays.sort(next, (a, b) -> b.prefix.length() - a.prefix.length());
+        }
+        prefixes = next;
+    }
+
+    private static String identifierOf(String method) {
+        int lastDot = method.lastIndexOf('.');
+        return lastDot != -1 && lastDot < method.length() - 1 ? method.substring(lastDot + 1) : null;
+    }
+
+    /**
+     * @brief 查找处理器，未注册返回 null
+     */
+    public H lookup(String method) {
+        if (method == null) return null;
+        H handler = exact.get(method);
+        if (handler != null) return handler;
+        for (PrefixEntry<H> entry : prefixes) {
+            if (method.startsWith(entry.prefix)) return entry.handler;
+        }
+        return null;
+    }
+}
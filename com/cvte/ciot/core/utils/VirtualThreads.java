@@ -0,0 +1,50 @@
+package com.cvte.ciot.core.utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 13:20
+ * @description VirtualThreads
+ */
+
+/**
+ * 虚拟线程 (Java 21+) 的反射封装，SDK 仍可在旧版 JVM / Android 上编译和运行。
+ */
+public final class VirtualThreads {
+
+    private static final Method NEW_PER_TASK_EXECUTOR = lookup();
+
+    private VirtualThreads() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    private static Method lookup() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException | SecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @brief 当前 JVM 是否支持虚拟线程
+     */
+    public static boolean isSupported() {
+        return NEW_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * @brief 创建每任务一个虚拟线程的执行器，不支持时返回 null
+     */
+    public static ExecutorService newPerTaskExecutor() {
+        if (NEW_PER_TASK_EXECUTOR == null) return null;
+        try {
+            return (ExecutorService) NEW_PER_TASK_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.cvte.ciot.core.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 20:25
+ * @description WeightedLaneQueue
+ */
+
+/**
+ * 多通道加权轮询队列，单消费者。
+ * <p>
+ * 每个通道有独立的容量与权重，下标越小优先级越高。每轮中通道 i 最多被取 weights[i] 次，
+ * 每次取都从最高优先级通道开始查找，因此高优先级消息在一轮内总是先出队；
+ * 所有非空通道的额度用完后开始新一轮，低优先级通道不会被饿死。
+ */
+public final class WeightedLaneQueue<T> {
+
+    private final ArrayDeque<T>[] lanes;
+    private final int[] weights;
+    private final int[] credits;
+    private final int capacity;
+    private final String[] names;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition[] notFull;
+    private int size;
+
+    private final long[] enqueuedCount;
+    private final long[] rejectedCount;
+
+    /**
+     * @param names    通道名称，用于统计
+     * @param weights  每轮各通道最多出队的条数，必须为正
+     * @param capacity 每个通道的容量
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public WeightedLaneQueue(String[] names, int[] weights, int capacity) {
+        if (names.length != weights.length || weights.length == 0) {
+            throw new IllegalArgumentException("names and weights must have the same non-zero length");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        int n = weights.length;
+        this.names = names.clone();
+        this.weights = weights.clone();
+        this.credits = weights.clone();
+        this.capacity = capacity;
+        this.lanes = new ArrayDeque[n];
+        this.notFull = new Condition[n];
+        this.enqueuedCount = new long[n];
+        this.rejectedCount = new long[n];
+        for (int i = 0; i < n; i++) {
+            if (weights[i] <= 0) {
+                throw new IllegalArgumentException("weight must be positive: " + weights[i]);
+            }
+            lanes[i] = new ArrayDeque<>();
+            notFull[i] = lock.newCondition();
+        }
+    }
+
+    /**
+     * @brief 入队，通道已满时最多等待 timeoutMillis (0 表示不等待)
+     * @return 超时仍无空位返回 false
+     */
+    public boolean offer(int lane, T item, long timeoutMillis) throws InterruptedException {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        lock.lockInterruptibly();
+        try {
+            ArrayDeque<T> queue = lanes[lane];
+            while (queue.size() >= capacity) {
+                if (nanos <= 0) {
+                    rejectedCount[lane]++;
+                    return false;
+                }
+                nanos = notFull[lane].awaitNanos(nanos);
+            }
+            queue.addLast(item);
+            size++;
+            enqueuedCount[lane]++;
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @brief 按顺序批量入队，只加锁一次；通道满时等待出队腾出空位，总等待时间不超过 timeoutMillis (0 表示不等待)
+     * @return 入队的条数，超时或被中断时之后的元素不入队
+     */
+    public int offerAll(int lane, List<? extends T> items, long timeoutMillis) throws InterruptedException {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        lock.lockInterruptibly();
+        try {
+            ArrayDeque<T> queue = lanes[lane];
+            int offered = 0;
+            for (T item : items) {
+                while (queue.size() >= capacity) {
+                    if (nanos <= 0) {
+                        rejectedCount[lane] += items.size() - offered;
+                        return offered;
+                    }
+                    // 已入队的部分先唤醒消费方，才能腾出空位
+                    notEmpty.signal();
+                    try {
+                        nanos = notFull[lane].awaitNanos(nanos);
+                    } catch (InterruptedException e) {
+                        rejectedCount[lane] += items.size() - offered;
+                        Thread.currentThread().interrupt();
+                        return offered;
+                    }
+                }
+                queue.addLast(item);
+                size++;
+                enqueuedCount[lane]++;
+                offered++;
+            }
+            if (offered > 0) notEmpty.signal();
+            return offered;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @brief 按权重取出下一条，队列为空时等待
+     */
+    public T take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @brief 按权重取出下一条，最多等待 timeoutNanos，超时返回 null
+     */
+    public T poll(long timeoutNanos) throws InterruptedException {
+        long nanos = timeoutNanos;
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                if (nanos <= 0) return null;
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @brief 取出全部剩余元素 (关闭时用)
+     */
+    public List<T> drain() {
+        lock.lock();
+        try {
+            List<T> items = new ArrayList<>(size);
+            for (int i = 0; i < lanes.length; i++) {
+                items.addAll(lanes[i]);
+                lanes[i].clear();
+                notFull[i].signalAll();
+            }
+            size = 0;
+            return items;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @brief 取出某个通道的全部剩余元素
+     */
+    public List<T> drainLane(int lane) {
+        lock.lock();
+        try {
+            List<T> items = new ArrayList<>(lanes[lane]);
+            lanes[lane].clear();
+            size -= items.size();
+            notFull[lane].signalAll();
+            return items;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @brief 各通道的当前深度、累计入队数与拒绝数
+     */
+    public Map<String, Long> stats() {
+        lock.lock();
+        try {
+            Map<String, Long> stats = new LinkedHashMap<>();
+            for (int i = 0; i < lanes.length; i++) {
+                stats.put(names[i] + "Depth", (long) lanes[i].size());
+                stats.put(names[i] + "Enqueued", enqueuedCount[i]);
+                stats.put(names[i] + "Rejected", rejectedCount[i]);
+            }
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ------------------------------------------------------------------
+
+    /** 调用方持有锁且队列非空 */
+    private T dequeue() {
+        while (true) {
+            for (int i = 0; i < lanes.length; i++) {
+                if (credits[i] > 0 && !lanes[i].isEmpty()) {
+                    credits[i]--;
+                    size--;
+                    T item = lanes[i].pollFirst();
+                    notFull[i].signal();
+                    return item;
+                }
+            }
+            // 所有非空通道的额度已用完，开始新一轮
+            System.arraycopy(weights, 0, credits, 0, weights.length);
+        }
+    }
+}
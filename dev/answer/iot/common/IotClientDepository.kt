@@ -7,12 +7,17 @@ import com.cvte.ciot.core.callback.OnConnectSSLStateCallback
 import com.cvte.ciot.core.callback.OnConnectState
 import com.cvte.ciot.core.callback.OnTslDownCallback
 import com.cvte.ciot.core.model.*
+import com.cvte.ciot.core.model.tsl.TslBasic
+import com.cvte.ciot.core.model.tsl.TslRequest
 import com.cvte.ciot.core.model.tsl.TslResponse
 import com.google.gson.Gson
 import com.google.gson.GsonBuilder
 import com.google.gson.JsonObject
 import java.io.Closeable
 import java.util.*
+import java.util.concurrent.CompletableFuture
+import kotlin.coroutines.resume
+import kotlin.coroutines.resumeWithException
 import kotlinx.coroutines.*
 import kotlinx.coroutines.flow.*
 import kotlinx.coroutines.sync.Mutex
@@ -48,7 +53,8 @@ object IotClientDepository : Closeable {
         val productSecret: String,
         val deviceId: String?, // 自定义 DeviceId
         val brokerUrl: String,
-        val registerUrl: String
+        val registerUrl: String,
+        val responseCache: ResponseCacheConfig? = null // 上行请求响应缓存，为空时不缓存
     )
 
     // ==================== Builder 模式 ====================
@@ -61,6 +67,7 @@ object IotClientDepository : Closeable {
         private var brokerUrl: String = ""
         private var registerUrl: String = ""  //自己輸入
         private var listener: IotConnectEventListener? = null
+        private var responseCache: ResponseCacheConfig? = null
 
         fun serialCode(sn: String) = apply { this.serialCode = sn }
         fun product(key: String, secret: String) = apply {
@@ -71,6 +78,7 @@ object IotClientDepository : Closeable {
         fun brokerUrl(url: String) = apply { this.brokerUrl = url }
         fun registerUrl(url: String) = apply { this.registerUrl = url }
         fun listener(l: IotConnectEventListener) = apply { this.listener = l }
+        fun responseCache(config: ResponseCacheConfig) = apply { this.responseCache = config }
 
         /**
          * 构建并自动启动连接
@@ -79,7 +87,7 @@ object IotClientDepository : Closeable {
             if (serialCode.isEmpty() || productKey.isEmpty()) {
                 error("SerialCode and ProductKey must be provided.")
             }
-            val options = IotOptions(serialCode, productKey, productSecret, customDeviceId, brokerUrl, registerUrl)
+            val options = IotOptions(serialCode, productKey, productSecret, customDeviceId, brokerUrl, registerUrl, responseCache)
             return instance.initialize(options, listener)
         }
 
@@ -107,6 +115,7 @@ object IotClientDepository : Closeable {
                 .setBrokerUrl(options.brokerUrl)
                 .setDeviceName(deviceName)
                 .setProtocols(IoTProtocol.MQTT)
+                .setResponseCache(options.responseCache)
                 .setRegisterConfig(RegisterConfig(options.registerUrl, options.productKey, options.productSecret,
                     options.deviceId!!, identifiers))
                 .single()
@@ -210,6 +219,16 @@ object IotClientDepository : Closeable {
     @JvmStatic
     fun isConnected(): Boolean = iotClient?.isConnected() ?: false
 
+    /**
+     * 移除响应缓存，method 为完整方法名，为空时清空全部
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun invalidateResponseCache(method: String? = null) {
+        val client = iotClient ?: return
+        if (method.isNullOrEmpty()) client.invalidateResponseCache() else client.invalidateResponseCache(method)
+    }
+
     /**
      * 断开连接（同步包装）
      */
@@ -218,6 +237,42 @@ object IotClientDepository : Closeable {
         disconnect()
     }
 
+    // ==================== 协程 API ====================
+    // 直接挂起等待响应 future，不占用 IO 线程；协程取消时取消 future，SDK 随之移除等待中的请求
+
+    /**
+     * 调用云端服务，未连接时返回 FAILED
+     */
+    suspend fun callService(basic: TslBasic, req: TslRequest, options: CallOptions = CallOptions.defaultOptions()): TslResponse {
+        val client = getClient() ?: return TslResponse.failure(message = "IoT client is not connected")
+        return client.callServiceAsync(basic, req, options).awaitResponse()
+    }
+
+    /**
+     * 获取云端属性，未连接时返回 FAILED
+     */
+    suspend fun getProperty(basic: TslBasic, req: TslRequest, options: CallOptions = CallOptions.defaultOptions()): TslResponse {
+        val client = getClient() ?: return TslResponse.failure(message = "IoT client is not connected")
+        return client.getPropertyAsync(basic, req, options).awaitResponse()
+    }
+
+    /**
+     * 属性上报。消息进入发送队列即返回；只有发送通道已满需要等待时才会占用 IO 线程
+     */
+    suspend fun postProperty(basic: TslBasic, req: TslRequest): Boolean {
+        val client = getClient() ?: return false
+        return runInterruptible(Dispatchers.IO) { client.postProperty(basic, req) }
+    }
+
+    private suspend fun CompletableFuture<TslResponse>.awaitResponse(): TslResponse =
+        suspendCancellableCoroutine { cont ->
+            whenComplete { res, e ->
+                // 协程已取消时 resume 会被忽略
+                if (e == null) cont.resume(res) else cont.resumeWithException(e)
+            }
+            cont.invokeOnCancellation { cancel(false) }
+        }
+
     // ... 原有的 disconnect 和 close 方法 ...
 
     fun disconnect() {
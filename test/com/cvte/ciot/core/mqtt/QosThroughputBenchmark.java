@@ -0,0 +1,101 @@
+package com.cvte.ciot.core.mqtt;
+
+import com.cvte.ciot.core.model.DeviceAuth;
+import com.cvte.ciot.core.model.IoTConfig;
+import com.cvte.ciot.core.model.tsl.TslBasic;
+import com.cvte.ciot.core.model.tsl.TslRequest;
+import dev.answer.seewocampus.com.cvte.ciot.core.mqtt.IoTMqttImpl;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 21:30
+ * @description QosThroughputBenchmark
+ */
+
+/**
+ * 属性上报在各 QoS 下的持续吞吐。需要本地 Broker，不随单元测试运行。
+ * <p>
+ * 用法: QosThroughputBenchmark &lt;brokerUrl&gt; [messages] [payloadBytes]，
+ * 例如 tcp://127.0.0.1:1883 100000 256。
+ * 每个 QoS 使用独立的连接，先预热，再计时发出 messages 条上报，直到发送队列与在途窗口全部清空才停止计时。
+ */
+public final class QosThroughputBenchmark {
+
+    private static final int WARMUP = 2000;
+    private static final long DRAIN_TIMEOUT_SEC = 120;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: QosThroughputBenchmark <brokerUrl> [messages] [payloadBytes]");
+            System.exit(2);
+        }
+        String broker = args[0];
+        int messages = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int payloadBytes = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+
+        System.out.printf("broker=%s messages=%d payload=%dB%n", broker, messages, payloadBytes);
+        System.out.println("qos   msg/s      elapsed(ms)  failed");
+        for (int qos = 0; qos <= 2; qos++) {
+            run(broker, qos, messages, payloadBytes);
+        }
+    }
+
+    private static void run(String broker, int qos, int messages, int payloadBytes) throws Exception {
+        IoTConfig config = new IoTConfig();
+        config.setHost(broker);
+        config.setDevice(new DeviceAuth("bench", "bench-qos" + qos + "-" + System.nanoTime(), "secret"));
+        config.setOnConnectState(connected -> { });
+        config.setJournalDir("");
+        IoTMqttImpl client = new IoTMqttImpl(config);
+        try {
+            client.connect(10, 5);
+            TslBasic basic = new TslBasic();
+            TslRequest req = new TslRequest("", params(payloadBytes));
+
+            for (int i = 0; i < WARMUP; i++) {
+                client.propertyPost(basic, req, qos);
+            }
+            drain(client);
+            long failedBefore = client.getOutboundStats().get("failed");
+
+            long start = System.nanoTime();
+            for (int i = 0; i < messages; i++) {
+                client.propertyPost(basic, req, qos);
+            }
+            drain(client);
+            long elapsed = System.nanoTime() - start;
+
+            long failed = client.getOutboundStats().get("failed") - failedBefore;
+            System.out.printf("%-5d %-10.0f %-12d %d%n",
+                    qos, messages * 1e9 / elapsed, TimeUnit.NANOSECONDS.toMillis(elapsed), failed);
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    /**
+     * 等待发送队列与在途窗口清空: QoS 1/2 以收到确认为准，QoS 0 以写出为准
+     */
+    private static void drain(IoTMqttImpl client) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(DRAIN_TIMEOUT_SEC);
+        while (System.nanoTime() < deadline) {
+            Map<String, Long> stats = client.getOutboundStats();
+            long pending = stats.get("inFlight") + stats.get("rateDeferred");
+            for (Map.Entry<String, Long> e : stats.entrySet()) {
+                if (e.getKey().startsWith("queue") && e.getKey().endsWith("Depth")) pending += e.getValue();
+            }
+            if (pending == 0) return;
+            Thread.sleep(1);
+        }
+        throw new IllegalStateException("Outbound queue did not drain within " + DRAIN_TIMEOUT_SEC + "s");
+    }
+
+    private static String params(int payloadBytes) {
+        StringBuilder sb = new StringBuilder("{\"data\":\"");
+        while (sb.length() < payloadBytes - 2) sb.append('x');
+        return sb.append("\"}").toString();
+    }
+}
@@ -0,0 +1,74 @@
+package com.cvte.ciot.core.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 22:10
+ * @description HashedWheelTimerTest
+ */
+class HashedWheelTimerTest {
+
+    private final HashedWheelTimer timer = new HashedWheelTimer("test-timer", 10, TimeUnit.MILLISECONDS, 8);
+
+    @AfterEach
+    void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    void firesAfterDelay() throws Exception {
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+        HashedWheelTimer.Timeout timeout = timer.newTimeout(fired::countDown, 50, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMs >= 50, "fired early: " + elapsedMs + "ms");
+        assertTrue(timeout.isExpired());
+    }
+
+    @Test
+    void delayLongerThanOneRoundStillFires() throws Exception {
+        // 8 格 * 10ms 一圈为 80ms，需要转多圈
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+        timer.newTimeout(fired::countDown, 200, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 200);
+    }
+
+    @Test
+    void cancelledTimeoutDoesNotFire() throws Exception {
+        AtomicBoolean fired = new AtomicBoolean();
+        HashedWheelTimer.Timeout timeout = timer.newTimeout(() -> fired.set(true), 30, TimeUnit.MILLISECONDS);
+        assertEquals(1L, timer.pending());
+
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        Thread.sleep(150);
+
+        assertFalse(fired.get());
+        assertFalse(timeout.isExpired());
+        assertEquals(0L, timer.pending());
+    }
+
+    @Test
+    void rejectsAfterStop() {
+        timer.stop();
+        assertThrows(RejectedExecutionException.class,
+                () -> timer.newTimeout(() -> { }, 10, TimeUnit.MILLISECONDS));
+    }
+}
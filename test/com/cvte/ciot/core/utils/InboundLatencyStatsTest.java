@@ -0,0 +1,44 @@
+package com.cvte.ciot.core.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 17:55
+ * @description InboundLatencyStatsTest
+ */
+class InboundLatencyStatsTest {
+
+    @Test
+    void snapshotGroupsByMethodAndStage() {
+        InboundLatencyStats stats = new InboundLatencyStats();
+        stats.record("thing.service.reboot", InboundLatencyStats.Stage.HANDLER, 2_000_000);
+        stats.record("thing.service.reboot", InboundLatencyStats.Stage.HANDLER, 4_000_000);
+        stats.record("thing.service.reboot", InboundLatencyStats.Stage.DECODE, 10_000);
+
+        Map<String, Map<String, Long>> stages = stats.snapshot().get("thing.service.reboot");
+        assertEquals(2L, stages.get("handler").get("count"));
+        assertEquals(4000L, stages.get("handler").get("maxUs"));
+        assertEquals(1L, stages.get("decode").get("count"));
+        assertFalse(stages.containsKey("publish"));
+    }
+
+    @Test
+    void methodsBeyondLimitAreFoldedIntoOther() {
+        InboundLatencyStats stats = new InboundLatencyStats();
+        for (int i = 0; i < 300; i++) {
+            stats.record("method-" + i, InboundLatencyStats.Stage.HANDLER, 1000);
+        }
+        stats.record(null, InboundLatencyStats.Stage.HANDLER, 1000);
+
+        Map<String, Map<String, Map<String, Long>>> snapshot = stats.snapshot();
+        assertEquals(257, snapshot.size());
+        assertTrue(snapshot.get(InboundLatencyStats.OTHER_METHOD).get("handler").get("count") >= 45);
+    }
+}
@@ -0,0 +1,192 @@
+package com.cvte.ciot.core.utils;
+
+import com.cvte.ciot.core.model.PublishResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 19:00
+ * @description JournalReplayerTest
+ */
+class JournalReplayerTest {
+
+    private static final int SEGMENT = 4096;
+
+    @TempDir
+    File dir;
+
+    private final AtomicBoolean connected = new AtomicBoolean(true);
+    private final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    void replaysInOrderAndCommitsAcknowledgedRecords() throws Exception {
+        try (OutboundJournal journal = newJournal("t/1", "t/2", "t/3")) {
+            JournalReplayer replayer = new JournalReplayer(journal, this::ack, connected::get, 4, 0, 1000);
+
+            assertTrue(replayer.replay(null));
+            assertEquals(Arrays.asList("t/1", "t/2", "t/3"), sent);
+            assertTrue(journal.isEmpty());
+        }
+    }
+
+    @Test
+    void keepsWindowOfSendsOutstandingBeforeFirstAck() throws Exception {
+        try (OutboundJournal journal = newJournal("t/1", "t/2", "t/3", "t/4", "t/5")) {
+            List<CompletableFuture<PublishResult>> pending = Collections.synchronizedList(new ArrayList<>());
+            CountDownLatch windowFull = new CountDownLatch(3);
+            JournalReplayer replayer = new JournalReplayer(journal, record -> {
+                sent.add(record.topic);
+                CompletableFuture<PublishResult> future = new CompletableFuture<>();
+                pending.add(future);
+                windowFull.countDown();
+                return future;
+            }, connected::get, 3, 0, 5000);
+
+            CompletableFuture<Boolean> done = new CompletableFuture<>();
+            Thread thread = new Thread(() -> {
+                try {
+                    done.complete(replayer.replay(null));
+                } catch (Throwable t) {
+                    done.completeExceptionally(t);
+                }
+            });
+            thread.start();
+
+            // 未收到任何确认时已有 3 条在途，且不超过窗口
+            assertTrue(windowFull.await(5, TimeUnit.SECONDS));
+            Thread.sleep(50);
+            assertEquals(Arrays.asList("t/1", "t/2", "t/3"), new ArrayList<>(sent));
+            assertEquals(5L, journal.stats().get("pending"));
+
+            // 确认乱序到达，日志按顺序推进
+            pending.get(1).complete(success());
+            Thread.sleep(50);
+            assertEquals(5L, journal.stats().get("pending"));
+            pending.get(0).complete(success());
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (pending.size() < 5 && System.nanoTime() < deadline) Thread.sleep(10);
+            assertEquals(5, pending.size());
+            for (CompletableFuture<PublishResult> future : new ArrayList<>(pending)) future.complete(success());
+
+            assertTrue(done.get(5, TimeUnit.SECONDS));
+            assertEquals(Arrays.asList("t/1", "t/2", "t/3", "t/4", "t/5"), sent);
+            assertTrue(journal.isEmpty());
+        }
+    }
+
+    @Test
+    void connectionLostMidReplayKeepsUnacknowledgedRecords() throws Exception {
+        try (OutboundJournal journal = newJournal("t/1", "t/2", "t/3")) {
+            // 第二条发出后连接断开，PUBACK 不会到达
+            JournalReplayer replayer = new JournalReplayer(journal, record -> {
+                sent.add(record.topic);
+                if (record.topic.equals("t/2")) {
+                    connected.set(false);
+                    return CompletableFuture.completedFuture(PublishResult.failed("Connection lost"));
+                }
+                if (!connected.get()) {
+                    return CompletableFuture.completedFuture(PublishResult.failed("Client is not connected"));
+                }
+                return CompletableFuture.completedFuture(success());
+            }, connected::get, 1, 0, 1000);
+
+            assertFalse(replayer.replay(null));
+            assertEquals(2L, journal.stats().get("pending"));
+            assertEquals("t/2", journal.peek().topic);
+
+            // 重连后从未确认的消息开始重发
+            connected.set(true);
+            sent.clear();
+            assertTrue(new JournalReplayer(journal, this::ack, connected::get, 4, 0, 1000).replay(null));
+            assertEquals(Arrays.asList("t/2", "t/3"), sent);
+            assertTrue(journal.isEmpty());
+        }
+    }
+
+    @Test
+    void unacknowledgedRecordsStayAfterTimeout() throws Exception {
+        try (OutboundJournal journal = newJournal("t/1", "t/2")) {
+            JournalReplayer replayer = new JournalReplayer(journal, record -> {
+                sent.add(record.topic);
+                return new CompletableFuture<>();
+            }, connected::get, 4, 0, 50);
+
+            assertFalse(replayer.replay(null));
+            assertEquals(Arrays.asList("t/1", "t/2"), sent);
+            assertEquals(2L, journal.stats().get("pending"));
+        }
+    }
+
+    @Test
+    void caughtUpOnceBacklogAtStartIsAcknowledged() throws Exception {
+        try (OutboundJournal journal = newJournal("t/1", "t/2")) {
+            AtomicInteger caughtUp = new AtomicInteger();
+            AtomicLong sentWhenCaughtUp = new AtomicLong(-1);
+            JournalReplayer replayer = new JournalReplayer(journal, record -> {
+                sent.add(record.topic);
+                // 重放过程中又写入一条，不影响高水位
+                if (record.topic.equals("t/1")) {
+                    journal.append("t/late", "late".getBytes(StandardCharsets.UTF_8), 1, false);
+                }
+                return CompletableFuture.completedFuture(success());
+            }, connected::get, 1, 0, 1000);
+
+            assertTrue(replayer.replay(() -> {
+                caughtUp.incrementAndGet();
+                sentWhenCaughtUp.set(sent.size());
+            }));
+            assertEquals(1, caughtUp.get());
+            assertEquals(2L, sentWhenCaughtUp.get());
+            assertEquals(Arrays.asList("t/1", "t/2", "t/late"), sent);
+            assertTrue(journal.isEmpty());
+        }
+    }
+
+    @Test
+    void stopsWithoutSendingWhenDisconnected() throws Exception {
+        try (OutboundJournal journal = newJournal("t/1")) {
+            connected.set(false);
+            AtomicBoolean caughtUp = new AtomicBoolean();
+            assertFalse(new JournalReplayer(journal, this::ack, connected::get, 4, 0, 1000)
+                    .replay(() -> caughtUp.set(true)));
+            assertTrue(sent.isEmpty());
+            assertFalse(caughtUp.get());
+            assertFalse(journal.isEmpty());
+        }
+    }
+
+    private CompletableFuture<PublishResult> ack(OutboundJournal.Record record) {
+        sent.add(record.topic);
+        return CompletableFuture.completedFuture(success());
+    }
+
+    private static PublishResult success() {
+        return new PublishResult(true, 1, 0, null, false);
+    }
+
+    private OutboundJournal newJournal(String... topics) throws Exception {
+        OutboundJournal journal = new OutboundJournal(dir, SEGMENT, SEGMENT * 4L, 0);
+        for (String topic : topics) {
+            assertTrue(journal.append(topic, topic.getBytes(StandardCharsets.UTF_8), 1, false));
+        }
+        return journal;
+    }
+}
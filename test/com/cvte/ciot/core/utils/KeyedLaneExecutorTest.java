@@ -0,0 +1,322 @@
+package com.cvte.ciot.core.utils;
+
+import com.cvte.ciot.core.model.InboundOverflowPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 11:20
+ * @description KeyedLaneExecutorTest
+ */
+class KeyedLaneExecutorTest {
+
+    private KeyedLaneExecutor executor;
+    private ExecutorService perKeyPool;
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null) executor.shutdownNow();
+        if (perKeyPool != null) perKeyPool.shutdownNow();
+    }
+
+    @Test
+    void tasksWithSameKeyRunInSubmissionOrder() throws Exception {
+        executor = new KeyedLaneExecutor(4, "test-lane");
+        int keys = 16;
+        int perKey = 500;
+        List<List<Integer>> seen = new ArrayList<>();
+        for (int k = 0; k < keys; k++) seen.add(Collections.synchronizedList(new ArrayList<>()));
+        CountDownLatch done = new CountDownLatch(keys * perKey);
+
+        for (int i = 0; i < perKey; i++) {
+            for (int k = 0; k < keys; k++) {
+                final int key = k;
+                final int value = i;
+                executor.execute("device-" + key, () -> {
+                    seen.get(key).add(value);
+                    done.countDown();
+                });
+            }
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (List<Integer> values : seen) {
+            for (int i = 0; i < perKey; i++) {
+                assertEquals(i, (int) values.get(i));
+            }
+        }
+    }
+
+    @Test
+    void blockedLaneDoesNotStallOtherLanes() throws Exception {
+        executor = new KeyedLaneExecutor(2, "test-lane");
+        String slowKey = "slow";
+        String fastKey = keyInOtherLane(slowKey);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch fastDone = new CountDownLatch(1);
+
+        executor.execute(slowKey, () -> await(release));
+        executor.execute(fastKey, fastDone::countDown);
+
+        assertTrue(fastDone.await(5, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    void laneOfIsStableAndInRange() {
+        executor = new KeyedLaneExecutor(3, "test-lane");
+        for (int i = 0; i < 100; i++) {
+            String key = "device-" + i;
+            int lane = executor.laneOf(key);
+            assertTrue(lane >= 0 && lane < 3);
+            assertEquals(lane, executor.laneOf(key));
+        }
+        assertEquals(0, executor.laneOf(null));
+    }
+
+    @Test
+    void rejectsTasksAfterShutdown() {
+        executor = new KeyedLaneExecutor(1, "test-lane");
+        executor.shutdownNow();
+        assertThrows(RejectedExecutionException.class, () -> executor.execute("k", () -> { }));
+    }
+
+    @Test
+    void rejectPolicyNotifiesTaskWhenFull() throws Exception {
+        executor = new KeyedLaneExecutor(1, "test-lane", 1, InboundOverflowPolicy.REJECT);
+        CountDownLatch release = occupyWorker();
+        executor.execute("k", () -> { });
+
+        AtomicBoolean ran = new AtomicBoolean();
+        AtomicInteger rejected = new AtomicInteger();
+        executor.execute("k", new TestTask(false, ran, rejected));
+
+        assertEquals(1, rejected.get());
+        assertEquals(1L, executor.stats().get("rejected"));
+        release.countDown();
+        Thread.sleep(100);
+        assertFalse(ran.get());
+    }
+
+    @Test
+    void dropOldestDiscardsEarliestDroppableTask() throws Exception {
+        executor = new KeyedLaneExecutor(1, "test-lane", 2, InboundOverflowPolicy.DROP_OLDEST);
+        CountDownLatch release = occupyWorker();
+        AtomicBoolean firstRan = new AtomicBoolean();
+        AtomicInteger firstDropped = new AtomicInteger();
+        AtomicBoolean secondRan = new AtomicBoolean();
+        AtomicInteger secondDropped = new AtomicInteger();
+        executor.execute("k", new TestTask(true, firstRan, firstDropped));
+        executor.execute("k", new TestTask(true, secondRan, secondDropped));
+
+        CountDownLatch newest = new CountDownLatch(1);
+        executor.execute("k", newest::countDown);
+
+        assertEquals(1, firstDropped.get());
+        assertEquals(0, secondDropped.get());
+        assertEquals(1L, executor.stats().get("dropped"));
+        release.countDown();
+        assertTrue(newest.await(5, TimeUnit.SECONDS));
+        assertFalse(firstRan.get());
+        assertTrue(secondRan.get());
+    }
+
+    @Test
+    void dropOldestRejectsWhenNothingIsDroppable() throws Exception {
+        executor = new KeyedLaneExecutor(1, "test-lane", 1, InboundOverflowPolicy.DROP_OLDEST);
+        CountDownLatch release = occupyWorker();
+        executor.execute("k", new TestTask(false, new AtomicBoolean(), new AtomicInteger()));
+
+        AtomicInteger rejected = new AtomicInteger();
+        executor.execute("k", new TestTask(false, new AtomicBoolean(), rejected));
+
+        assertEquals(1, rejected.get());
+        assertEquals(1L, executor.stats().get("rejected"));
+        release.countDown();
+    }
+
+    @Test
+    void perKeyTasksRunInSubmissionOrder() throws Exception {
+        perKeyPool = Executors.newCachedThreadPool();
+        executor = new KeyedLaneExecutor(1, "test-lane", 100_000, InboundOverflowPolicy.REJECT, perKeyPool);
+        int keys = 16;
+        int perKey = 500;
+        List<List<Integer>> seen = new ArrayList<>();
+        for (int k = 0; k < keys; k++) seen.add(Collections.synchronizedList(new ArrayList<>()));
+        CountDownLatch done = new CountDownLatch(keys * perKey);
+
+        for (int i = 0; i < perKey; i++) {
+            for (int k = 0; k < keys; k++) {
+                final int key = k;
+                final int value = i;
+                executor.executePerKey("device-" + key, () -> {
+                    seen.get(key).add(value);
+                    done.countDown();
+                });
+            }
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (List<Integer> values : seen) {
+            for (int i = 0; i < perKey; i++) {
+                assertEquals(i, (int) values.get(i));
+            }
+        }
+        // 任务结束后归还全部容量
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executor.queueDepth() > 0 && System.nanoTime() < deadline) Thread.sleep(10);
+        assertEquals(0, executor.queueDepth());
+    }
+
+    @Test
+    void perKeyTasksAreNotLimitedByLaneCount() throws Exception {
+        perKeyPool = Executors.newCachedThreadPool();
+        executor = new KeyedLaneExecutor(1, "test-lane", 16, InboundOverflowPolicy.REJECT, perKeyPool);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        CountDownLatch fastDone = new CountDownLatch(1);
+        AtomicBoolean queuedAfterSlow = new AtomicBoolean();
+
+        executor.executePerKey("slow", () -> {
+            slowStarted.countDown();
+            await(release);
+        });
+        executor.executePerKey("slow", () -> queuedAfterSlow.set(true));
+        assertTrue(slowStarted.await(5, TimeUnit.SECONDS));
+        // 只有一个通道，同一通道下的另一个 Key 仍可执行
+        executor.executePerKey("fast", fastDone::countDown);
+
+        assertTrue(fastDone.await(5, TimeUnit.SECONDS));
+        assertFalse(queuedAfterSlow.get());
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!queuedAfterSlow.get() && System.nanoTime() < deadline) Thread.sleep(10);
+        assertTrue(queuedAfterSlow.get());
+    }
+
+    @Test
+    void handlerSyncCallCompletesWhenResponseIsNotQueuedBehindIt() throws Exception {
+        executor = new KeyedLaneExecutor(1, "test-lane");
+        CompletableFuture<String> response = new CompletableFuture<>();
+        CompletableFuture<String> handlerResult = new CompletableFuture<>();
+        CountDownLatch requested = new CountDownLatch(1);
+
+        // 下行请求的处理器在通道上发出同步调用并等待响应
+        executor.execute("device", () -> {
+            requested.countDown();
+            try {
+                handlerResult.complete(response.get(5, TimeUnit.SECONDS));
+            } catch (Exception e) {
+                handlerResult.completeExceptionally(e);
+            }
+        });
+        assertTrue(requested.await(5, TimeUnit.SECONDS));
+        // 响应由接收线程直接完成，不经过该设备的通道
+        response.complete("ok");
+
+        assertEquals("ok", handlerResult.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void responseQueuedOnSameLaneWaitsBehindHandler() throws Exception {
+        executor = new KeyedLaneExecutor(1, "test-lane");
+        CompletableFuture<String> response = new CompletableFuture<>();
+        AtomicBoolean handlerTimedOut = new AtomicBoolean();
+        CountDownLatch requested = new CountDownLatch(1);
+        CountDownLatch responseDelivered = new CountDownLatch(1);
+
+        executor.execute("device", () -> {
+            requested.countDown();
+            try {
+                response.get(200, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                handlerTimedOut.set(true);
+            } catch (Exception ignored) {
+            }
+        });
+        assertTrue(requested.await(5, TimeUnit.SECONDS));
+        executor.execute("device", () -> {
+            response.complete("late");
+            responseDelivered.countDown();
+        });
+
+        assertTrue(responseDelivered.await(5, TimeUnit.SECONDS));
+        assertTrue(handlerTimedOut.get());
+    }
+
+    /**
+     * 让唯一的工作线程卡在一个任务上，返回放行用的 latch
+     */
+    private CountDownLatch occupyWorker() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute("k", () -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    private static final class TestTask implements KeyedLaneExecutor.LaneTask {
+        private final boolean droppable;
+        private final AtomicBoolean ran;
+        private final AtomicInteger rejected;
+
+        TestTask(boolean droppable, AtomicBoolean ran, AtomicInteger rejected) {
+            this.droppable = droppable;
+            this.ran = ran;
+            this.rejected = rejected;
+        }
+
+        @Override
+        public void run() {
+            ran.set(true);
+        }
+
+        @Override
+        public boolean isDroppable() {
+            return droppable;
+        }
+
+        @Override
+        public void onRejected() {
+            rejected.incrementAndGet();
+        }
+    }
+
+    private String keyInOtherLane(String key) {
+        int lane = executor.laneOf(key);
+        for (int i = 0; ; i++) {
+            String candidate = "key-" + i;
+            if (executor.laneOf(candidate) != lane) return candidate;
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
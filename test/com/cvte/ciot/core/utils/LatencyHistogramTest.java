@@ -0,0 +1,65 @@
+package com.cvte.ciot.core.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 17:50
+ * @description LatencyHistogramTest
+ */
+class LatencyHistogramTest {
+
+    @Test
+    void emptyHistogramReportsZero() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0L, h.count());
+        assertEquals(0L, h.percentile(0.99));
+    }
+
+    @Test
+    void smallValuesAreCountedExactly() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int v = 0; v < 16; v++) h.record(v);
+
+        assertEquals(16L, h.count());
+        assertEquals(7L, h.percentile(0.5));
+        assertEquals(15L, h.percentile(1.0));
+    }
+
+    @Test
+    void bucketUpperBoundIsWithinRelativeError() {
+        long[] values = {16, 17, 100, 1_000, 12_345, 999_999, 123_456_789L, 10_000_000_000L};
+        for (long v : values) {
+            LatencyHistogram h = new LatencyHistogram();
+            h.record(v);
+            h.record(v * 4);
+            long p50 = h.percentile(0.5);
+            assertTrue(p50 >= v, "p50 below recorded value " + v);
+            assertTrue(p50 <= v + v / 8, "p50 " + p50 + " too far above " + v);
+        }
+    }
+
+    @Test
+    void percentileNeverExceedsMax() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(1_000_001);
+        assertEquals(1_000_001L, h.percentile(1.0));
+        assertEquals(1_000_001L, h.max());
+    }
+
+    @Test
+    void negativeAndHugeValuesAreClamped() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(-5);
+        h.record(Long.MAX_VALUE);
+
+        assertEquals(0L, h.percentile(0.5));
+        // 超出范围的值计入最后一个桶
+        assertTrue(h.percentile(1.0) >= 1L << 40);
+        assertEquals(Long.MAX_VALUE, h.max());
+        assertEquals(2L, h.count());
+    }
+}
@@ -0,0 +1,168 @@
+package com.cvte.ciot.core.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 18:50
+ * @description OutboundJournalTest
+ */
+class OutboundJournalTest {
+
+    private static final int SEGMENT = 4096;
+
+    @TempDir
+    File dir;
+
+    @Test
+    void peekAndCommitInAppendOrder() throws Exception {
+        try (OutboundJournal journal = new OutboundJournal(dir, SEGMENT, SEGMENT * 4L, 0)) {
+            assertTrue(journal.append("t/1", bytes("one"), 1, false));
+            assertTrue(journal.append("t/2", bytes("two"), 0, true));
+
+            OutboundJournal.Record first = journal.peek();
+            assertEquals("t/1", first.topic);
+            assertEquals("one", text(first.payload));
+            assertEquals(1, first.qos);
+            assertFalse(first.retained);
+            // 未提交前重复 peek 得到同一条
+            assertEquals("t/1", journal.peek().topic);
+
+            journal.commit(first);
+            OutboundJournal.Record second = journal.peek();
+            assertEquals("t/2", second.topic);
+            assertEquals(0, second.qos);
+            assertTrue(second.retained);
+
+            journal.commit(second);
+            assertNull(journal.peek());
+            assertTrue(journal.isEmpty());
+        }
+    }
+
+    @Test
+    void reopenResumesFromCommittedOffset() throws Exception {
+        try (OutboundJournal journal = new OutboundJournal(dir, SEGMENT, SEGMENT * 4L, 0)) {
+            for (int i = 0; i < 3; i++) {
+                journal.append("t/" + i, bytes("m" + i), 1, false);
+            }
+            journal.commit(journal.peek());
+        }
+
+        try (OutboundJournal journal = new OutboundJournal(dir, SEGMENT, SEGMENT * 4L, 0)) {
+            assertEquals(2L, journal.stats().get("pending"));
+            OutboundJournal.Record record = journal.peek();
+            assertEquals("t/1", record.topic);
+            assertEquals("m1", text(record.payload));
+        }
+    }
+
+    @Test
+    void recordsSpanMultipleSegments() throws Exception {
+        byte[] payload = new byte[1000];
+        try (OutboundJournal journal = new OutboundJournal(dir, SEGMENT, SEGMENT * 8L, 0)) {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(journal.append("t/" + i, payload, 1, false));
+            }
+            for (int i = 0; i < 10; i++) {
+                OutboundJournal.Record record = journal.peek();
+                assertEquals("t/" + i, record.topic);
+                journal.commit(record);
+            }
+            assertNull(journal.peek());
+        }
+    }
+
+    @Test
+    void peekAfterReadsAheadAcrossSegmentsAndCommitRemovesPrefix() throws Exception {
+        byte[] payload = new byte[1000];
+        try (OutboundJournal journal = new OutboundJournal(dir, SEGMENT, SEGMENT * 8L, 0)) {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(journal.append("t/" + i, payload, 1, false));
+            }
+            long end = journal.writePosition();
+
+            OutboundJournal.Record cursor = null;
+            OutboundJournal.Record sixth = null;
+            long lastPosition = -1;
+            for (int i = 0; i < 10; i++) {
+                cursor = journal.peekAfter(cursor);
+                assertEquals("t/" + i, cursor.topic);
+                assertTrue(cursor.position > lastPosition);
+                lastPosition = cursor.position;
+                if (i == 5) sixth = cursor;
+            }
+            assertNull(journal.peekAfter(cursor));
+            // 只读不移除
+            assertEquals(10L, journal.stats().get("pending"));
+
+            journal.commit(sixth);
+            assertEquals(4L, journal.stats().get("pending"));
+            assertEquals("t/6", journal.peek().topic);
+            journal.commit(cursor);
+            assertTrue(journal.isEmpty());
+            assertEquals(end, journal.readPosition());
+        }
+    }
+
+    @Test
+    void peekAfterCommittedCursorContinuesFromReadPosition() throws Exception {
+        try (OutboundJournal journal = new OutboundJournal(dir, SEGMENT, SEGMENT * 4L, 0)) {
+            journal.append("t/1", bytes("x"), 1, false);
+            journal.append("t/2", bytes("y"), 1, false);
+            OutboundJournal.Record first = journal.peek();
+            assertEquals("t/2", journal.peekAfter(first).topic);
+            journal.commit(first);
+            // 已确认的记录作为游标时从读位置继续
+            assertEquals("t/2", journal.peekAfter(first).topic);
+        }
+    }
+
+    @Test
+    void oldestSegmentIsDroppedOverLimit() throws Exception {
+        byte[] payload = new byte[1000];
+        try (OutboundJournal journal = new OutboundJournal(dir, SEGMENT, SEGMENT * 2L, 0)) {
+            for (int i = 0; i < 12; i++) {
+                journal.append("t/" + i, payload, 1, false);
+            }
+            assertTrue(journal.stats().get("dropped") > 0);
+            assertTrue(journal.stats().get("bytes") <= SEGMENT * 2L);
+            assertFalse("t/0".equals(journal.peek().topic));
+        }
+    }
+
+    @Test
+    void expiredRecordsAreSkipped() throws Exception {
+        try (OutboundJournal journal = new OutboundJournal(dir, SEGMENT, SEGMENT * 4L, 20)) {
+            journal.append("t/old", bytes("x"), 1, false);
+            Thread.sleep(50);
+            assertNull(journal.peek());
+            assertEquals(1L, journal.stats().get("expired"));
+        }
+    }
+
+    @Test
+    void rejectsRecordLargerThanSegment() throws Exception {
+        try (OutboundJournal journal = new OutboundJournal(dir, SEGMENT, SEGMENT * 4L, 0)) {
+            assertFalse(journal.append("t", new byte[SEGMENT], 1, false));
+            assertTrue(journal.isEmpty());
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(byte[] b) {
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
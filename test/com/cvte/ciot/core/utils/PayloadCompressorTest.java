@@ -0,0 +1,99 @@
+package com.cvte.ciot.core.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 20:05
+ * @description PayloadCompressorTest
+ */
+class PayloadCompressorTest {
+
+    private final PayloadCompressor compressor = new PayloadCompressor(64, -1, 1 << 20, 2);
+
+    @Test
+    void roundTripsPayloadAboveThreshold() throws Exception {
+        byte[] payload = repeat("{\"temp\":21.5,\"hum\":40}", 100);
+
+        byte[] compressed = compressor.compress(payload);
+        assertTrue(PayloadCompressor.isCompressed(compressed));
+        assertTrue(compressed.length < payload.length);
+        assertArrayEquals(payload, compressor.decompress(compressed));
+        // 输出为标准 gzip
+        assertArrayEquals(payload, gunzip(compressed));
+        assertEquals(1L, compressor.stats().get("compressed"));
+    }
+
+    @Test
+    void smallOrIncompressiblePayloadIsReturnedAsIs() {
+        byte[] small = "{\"a\":1}".getBytes(StandardCharsets.UTF_8);
+        assertSame(small, compressor.compress(small));
+
+        byte[] random = new byte[4096];
+        new Random(1).nextBytes(random);
+        assertSame(random, compressor.compress(random));
+    }
+
+    @Test
+    void decompressesStandardGzipAndPassesThroughPlainPayload() throws Exception {
+        byte[] payload = repeat("hello ", 50);
+        assertArrayEquals(payload, compressor.decompress(gzip(payload)));
+
+        byte[] plain = "{\"a\":1}".getBytes(StandardCharsets.UTF_8);
+        assertFalse(PayloadCompressor.isCompressed(plain));
+        assertSame(plain, compressor.decompress(plain));
+    }
+
+    @Test
+    void rejectsOversizedOrCorruptPayload() throws Exception {
+        PayloadCompressor small = new PayloadCompressor(64, -1, 1024, 2);
+        byte[] bomb = gzip(new byte[64 * 1024]);
+        assertThrows(IllegalArgumentException.class, () -> small.decompress(bomb));
+
+        byte[] corrupt = gzip(repeat("abc", 100));
+        corrupt[corrupt.length - 8] ^= 0x55; // CRC 校验不符
+        assertThrows(IllegalArgumentException.class, () -> compressor.decompress(corrupt));
+
+        byte[] truncated = Arrays.copyOf(corrupt, 18);
+        assertThrows(IllegalArgumentException.class, () -> compressor.decompress(truncated));
+    }
+
+    private static byte[] repeat(String s, int times) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < times; i++) sb.append(s);
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] gzip(byte[] data) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] data) throws Exception {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[4096];
+            int n;
+            while ((n = in.read(chunk)) > 0) out.write(chunk, 0, n);
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.cvte.ciot.core.utils;
+
+import com.cvte.ciot.core.model.tsl.TslBasic;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 19:30
+ * @description PropertyCoalescerTest
+ */
+class PropertyCoalescerTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final List<String> flushed = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void latestValueWinsWithinWindow() throws Exception {
+        PropertyCoalescer coalescer = new PropertyCoalescer(50, 64, scheduler, this::record);
+
+        assertTrue(coalescer.offer(device("d1"), "{\"temp\":20,\"hum\":40}"));
+        assertTrue(coalescer.offer(device("d1"), "{\"temp\":21}"));
+        Thread.sleep(200);
+
+        assertEquals(1, flushed.size());
+        assertEquals("d1={\"temp\":21,\"hum\":40}", flushed.get(0));
+        assertEquals(2L, coalescer.stats().get("offered"));
+        assertEquals(1L, coalescer.stats().get("flushed"));
+    }
+
+    @Test
+    void flushesImmediatelyAtMaxKeys() {
+        PropertyCoalescer coalescer = new PropertyCoalescer(60_000, 2, scheduler, this::record);
+
+        coalescer.offer(device("d1"), "{\"a\":1}");
+        assertTrue(flushed.isEmpty());
+        coalescer.offer(device("d1"), "{\"b\":2}");
+
+        assertEquals(1, flushed.size());
+        assertEquals("d1={\"a\":1,\"b\":2}", flushed.get(0));
+    }
+
+    @Test
+    void devicesAreBufferedSeparately() {
+        PropertyCoalescer coalescer = new PropertyCoalescer(60_000, 64, scheduler, this::record);
+
+        coalescer.offer(device("d1"), "{\"a\":1}");
+        coalescer.offer(device("d2"), "{\"a\":2}");
+        coalescer.flushAll();
+
+        assertEquals(2, flushed.size());
+        assertTrue(flushed.contains("d1={\"a\":1}"));
+        assertTrue(flushed.contains("d2={\"a\":2}"));
+    }
+
+    @Test
+    void nonObjectParamsAreNotCoalesced() {
+        PropertyCoalescer coalescer = new PropertyCoalescer(60_000, 64, scheduler, this::record);
+
+        assertFalse(coalescer.offer(device("d1"), "[1,2]"));
+        assertFalse(coalescer.offer(device("d1"), "{}"));
+        assertFalse(coalescer.offer(device("d1"), "{not json"));
+        assertTrue(flushed.isEmpty());
+    }
+
+    @Test
+    void sendDirectFlushesBufferedValuesFirst() {
+        PropertyCoalescer coalescer = new PropertyCoalescer(60_000, 64, scheduler, this::record);
+        coalescer.offer(device("d1"), "{\"temp\":20}");
+        coalescer.offer(device("d2"), "{\"temp\":30}");
+
+        assertTrue(coalescer.sendDirect("d1", () -> flushed.add("d1=direct")));
+
+        assertEquals(2, flushed.size());
+        assertEquals("d1={\"temp\":20}", flushed.get(0));
+        assertEquals("d1=direct", flushed.get(1));
+        // 其他设备的缓存不受影响
+        coalescer.flushAll();
+        assertEquals("d2={\"temp\":30}", flushed.get(2));
+    }
+
+    private void record(TslBasic basic, String params) {
+        flushed.add(basic.getDeviceId() + "=" + params);
+    }
+
+    private static TslBasic device(String deviceId) {
+        return new TslBasic("", "1.0", deviceId);
+    }
+}
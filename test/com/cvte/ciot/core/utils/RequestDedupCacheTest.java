@@ -0,0 +1,94 @@
+package com.cvte.ciot.core.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 17:00
+ * @description RequestDedupCacheTest
+ */
+class RequestDedupCacheTest {
+
+    @Test
+    void duplicateWithinWindowReturnsFirstResult() throws Exception {
+        RequestDedupCache<String> cache = new RequestDedupCache<>(16, 1, TimeUnit.MINUTES);
+        CompletableFuture<String> first = new CompletableFuture<>();
+
+        assertNull(cache.claim("trace-1", first));
+        CompletableFuture<String> duplicate = cache.claim("trace-1", new CompletableFuture<>());
+        assertSame(first, duplicate);
+
+        first.complete("ok");
+        assertEquals("ok", duplicate.get());
+        assertEquals(1L, cache.hits());
+    }
+
+    @Test
+    void expiredEntryIsClaimedAgain() throws Exception {
+        RequestDedupCache<String> cache = new RequestDedupCache<>(16, 20, TimeUnit.MILLISECONDS);
+        assertNull(cache.claim("trace-1", new CompletableFuture<>()));
+
+        Thread.sleep(50);
+
+        assertNull(cache.claim("trace-1", new CompletableFuture<>()));
+        assertEquals(0L, cache.hits());
+    }
+
+    @Test
+    void oldestEntryIsEvictedOverCapacity() {
+        RequestDedupCache<String> cache = new RequestDedupCache<>(2, 1, TimeUnit.MINUTES);
+        cache.claim("a", new CompletableFuture<>());
+        cache.claim("b", new CompletableFuture<>());
+        cache.claim("c", new CompletableFuture<>());
+
+        assertEquals(2, cache.size());
+        assertNull(cache.claim("a", new CompletableFuture<>()));
+    }
+
+    @Test
+    void oldestResultsAreEvictedOverByteBudget() {
+        RequestDedupCache<String> cache = new RequestDedupCache<>(16, 10, String::length, 1, TimeUnit.MINUTES);
+        CompletableFuture<String> a = new CompletableFuture<>();
+        CompletableFuture<String> b = new CompletableFuture<>();
+        CompletableFuture<String> c = new CompletableFuture<>();
+        cache.claim("a", a);
+        cache.claim("b", b);
+        cache.claim("c", c);
+        // 处理中的请求不占字节
+        assertEquals(0L, cache.bytes());
+
+        a.complete("aaaa");
+        b.complete("bbbb");
+        assertEquals(8L, cache.bytes());
+        c.complete("cccc");
+
+        assertEquals(8L, cache.bytes());
+        assertEquals(2, cache.size());
+        assertNull(cache.claim("a", new CompletableFuture<>()));
+        assertSame(c, cache.claim("c", new CompletableFuture<>()));
+    }
+
+    @Test
+    void resultLargerThanBudgetIsNotKept() {
+        RequestDedupCache<String> cache = new RequestDedupCache<>(16, 10, String::length, 1, TimeUnit.MINUTES);
+        CompletableFuture<String> small = new CompletableFuture<>();
+        CompletableFuture<String> large = new CompletableFuture<>();
+        cache.claim("small", small);
+        cache.claim("large", large);
+        small.complete("ok");
+        large.complete("0123456789abcdef");
+
+        assertEquals(2L, cache.bytes());
+        assertEquals(1L, cache.oversized());
+        // 大结果不保留，重投时重新处理；小结果不受影响
+        assertNull(cache.claim("large", new CompletableFuture<>()));
+        assertSame(small, cache.claim("small", new CompletableFuture<>()));
+    }
+}
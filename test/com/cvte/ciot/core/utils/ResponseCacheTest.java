@@ -0,0 +1,118 @@
+package com.cvte.ciot.core.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 23:50
+ * @description ResponseCacheTest
+ */
+class ResponseCacheTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final String GET = "thing.property.get";
+    private static final String SCHEDULE = "thing.service.getSchedule";
+
+    private static ResponseCache<String> newCache(int capacity) {
+        Map<String, Long> ttls = new HashMap<>();
+        ttls.put(GET, 100L);
+        ttls.put(SCHEDULE, 1000L);
+        ttls.put("thing.service.disabled", 0L);
+        return new ResponseCache<>(capacity, ttls, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void entriesExpireAfterMethodTtl() {
+        ResponseCache<String> cache = newCache(16);
+        cache.put(GET, "k1", "v1", cache.generation(GET), 0);
+        cache.put(SCHEDULE, "k2", "v2", cache.generation(SCHEDULE), 0);
+
+        assertEquals("v1", cache.get("k1", 99 * MS));
+        assertNull(cache.get("k1", 100 * MS));
+        assertEquals("v2", cache.get("k2", 100 * MS));
+
+        Map<String, Long> stats = cache.stats();
+        assertEquals(2L, stats.get("hit"));
+        assertEquals(1L, stats.get("miss"));
+        assertEquals(1L, stats.get("expired"));
+        assertEquals(1L, stats.get("size"));
+    }
+
+    @Test
+    void onlyConfiguredMethodsAreCached() {
+        ResponseCache<String> cache = newCache(16);
+        assertTrue(cache.isCacheable(GET));
+        assertFalse(cache.isCacheable("thing.service.disabled"));
+        assertFalse(cache.isCacheable("thing.service.reboot"));
+
+        cache.put("thing.service.reboot", "k", "v", cache.generation("thing.service.reboot"), 0);
+        assertNull(cache.get("k", 0));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        ResponseCache<String> cache = newCache(2);
+        cache.put(SCHEDULE, "a", "1", cache.generation(SCHEDULE), 0);
+        cache.put(SCHEDULE, "b", "2", cache.generation(SCHEDULE), 0);
+        cache.get("a", 0);
+        cache.put(SCHEDULE, "c", "3", cache.generation(SCHEDULE), 0);
+
+        assertEquals("1", cache.get("a", 0));
+        assertNull(cache.get("b", 0));
+        assertEquals("3", cache.get("c", 0));
+        assertEquals(1L, cache.stats().get("evicted"));
+    }
+
+    @Test
+    void invalidateRemovesOnlyThatMethod() {
+        ResponseCache<String> cache = newCache(16);
+        cache.put(GET, "k1", "v1", cache.generation(GET), 0);
+        cache.put(SCHEDULE, "k2", "v2", cache.generation(SCHEDULE), 0);
+
+        cache.invalidate(GET);
+        assertNull(cache.get("k1", 0));
+        assertEquals("v2", cache.get("k2", 0));
+
+        cache.invalidateAll();
+        assertNull(cache.get("k2", 0));
+    }
+
+    @Test
+    void responseIssuedBeforeInvalidateIsNotCached() {
+        ResponseCache<String> cache = newCache(16);
+        long generation = cache.generation(GET);
+        cache.invalidate(GET);
+
+        cache.put(GET, "k", "stale", generation, 0);
+        assertNull(cache.get("k", 0));
+
+        cache.put(GET, "k", "fresh", cache.generation(GET), 0);
+        assertEquals("fresh", cache.get("k", 0));
+    }
+
+    @Test
+    void invalidatingOneMethodKeepsOtherInFlightResponses() {
+        ResponseCache<String> cache = newCache(16);
+        long getGeneration = cache.generation(GET);
+        long scheduleGeneration = cache.generation(SCHEDULE);
+        cache.invalidate(GET);
+
+        cache.put(SCHEDULE, "s", "v", scheduleGeneration, 0);
+        assertEquals("v", cache.get("s", 0));
+
+        cache.invalidateAll();
+        cache.put(GET, "g", "v", getGeneration, 0);
+        cache.put(SCHEDULE, "s", "v", scheduleGeneration, 0);
+        assertNull(cache.get("g", 0));
+        assertNull(cache.get("s", 0));
+    }
+}
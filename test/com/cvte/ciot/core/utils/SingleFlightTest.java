@@ -0,0 +1,96 @@
+package com.cvte.ciot.core.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 23:10
+ * @description SingleFlightTest
+ */
+class SingleFlightTest {
+
+    private final SingleFlight<String, String> flight = new SingleFlight<>();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final CompletableFuture<String> pending = new CompletableFuture<>();
+
+    @Test
+    void concurrentCallsShareOneRequest() throws Exception {
+        CompletableFuture<String> first = flight.execute("k", this::call);
+        CompletableFuture<String> second = flight.execute("k", this::call);
+
+        assertEquals(1, calls.get());
+        assertEquals(1L, flight.stats().get("inFlight"));
+        pending.complete("v");
+
+        assertEquals("v", first.get());
+        assertEquals("v", second.get());
+        assertEquals(1L, flight.stats().get("issued"));
+        assertEquals(1L, flight.stats().get("shared"));
+        assertEquals(0L, flight.stats().get("inFlight"));
+    }
+
+    @Test
+    void differentKeysAndLaterCallsIssueNewRequests() {
+        flight.execute("a", this::call);
+        flight.execute("b", () -> CompletableFuture.completedFuture("b"));
+        pending.complete("a");
+        flight.execute("a", () -> CompletableFuture.completedFuture("again"));
+
+        assertEquals(3L, flight.stats().get("issued"));
+        assertEquals(0L, flight.stats().get("shared"));
+    }
+
+    @Test
+    void cancellingOneCallerDoesNotAffectOthers() throws Exception {
+        CompletableFuture<String> first = flight.execute("k", this::call);
+        CompletableFuture<String> second = flight.execute("k", this::call);
+
+        first.cancel(false);
+        assertFalse(pending.isCancelled());
+        pending.complete("v");
+
+        assertEquals("v", second.get());
+    }
+
+    @Test
+    void cancellingAllCallersCancelsUnderlyingRequest() {
+        CompletableFuture<String> first = flight.execute("k", this::call);
+        CompletableFuture<String> second = flight.execute("k", this::call);
+
+        first.cancel(false);
+        second.cancel(false);
+
+        assertTrue(pending.isCancelled());
+        assertEquals(0L, flight.stats().get("inFlight"));
+    }
+
+    @Test
+    void failurePropagatesToAllCallers() {
+        CompletableFuture<String> first = flight.execute("k", this::call);
+        CompletableFuture<String> second = flight.execute("k", this::call);
+        pending.completeExceptionally(new IllegalStateException("timeout"));
+
+        assertThrows(ExecutionException.class, first::get);
+        assertThrows(ExecutionException.class, second::get);
+
+        CompletableFuture<String> thrown = flight.execute("x", () -> {
+            throw new IllegalStateException("offline");
+        });
+        assertTrue(thrown.isCompletedExceptionally());
+        assertEquals(0L, flight.stats().get("inFlight"));
+    }
+
+    private CompletableFuture<String> call() {
+        calls.incrementAndGet();
+        return pending;
+    }
+}
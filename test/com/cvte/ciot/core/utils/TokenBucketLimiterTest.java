@@ -0,0 +1,60 @@
+package com.cvte.ciot.core.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 21:20
+ * @description TokenBucketLimiterTest
+ */
+class TokenBucketLimiterTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void burstPassesThenMessagesAreSpacedByInterval() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(10, 3);
+        long now = 1_000_000_000L;
+
+        assertEquals(0L, limiter.reserve("k", now));
+        assertEquals(0L, limiter.reserve("k", now));
+        assertEquals(0L, limiter.reserve("k", now));
+        assertEquals(100 * MS, limiter.reserve("k", now));
+        assertEquals(200 * MS, limiter.reserve("k", now));
+
+        assertEquals(2L, limiter.stats().get("throttled"));
+        assertEquals(300L, limiter.stats().get("throttledMs"));
+    }
+
+    @Test
+    void tokensRefillOverTime() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(10, 1);
+        long now = 0;
+
+        assertEquals(0L, limiter.reserve("k", now));
+        assertEquals(100 * MS, limiter.reserve("k", now));
+        // 预约过的令牌被消耗，之后按 100ms 一个补充
+        assertEquals(0L, limiter.reserve("k", now + 1000 * MS));
+    }
+
+    @Test
+    void keysAreLimitedIndependently() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, 1);
+
+        assertEquals(0L, limiter.reserve("a", 0));
+        assertEquals(0L, limiter.reserve("b", 0));
+        assertEquals(1000 * MS, limiter.reserve("a", 0));
+        assertEquals(2L, limiter.stats().get("buckets"));
+    }
+
+    @Test
+    void rejectsInvalidRate() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketLimiter(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketLimiter(1, 0));
+    }
+}
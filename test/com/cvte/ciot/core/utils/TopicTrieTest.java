@@ -0,0 +1,89 @@
+package com.cvte.ciot.core.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 10:40
+ * @description TopicTrieTest
+ */
+class TopicTrieTest {
+
+    @Test
+    void exactLevelWinsOverPlusAndHash() {
+        TopicTrie<String> trie = TopicTrie.<String>builder()
+                .add("sys/+/+/rpc/request", "plus")
+                .add("sys/#", "hash")
+                .add("sys/pk/dev1/rpc/request", "exact")
+                .build();
+
+        assertEquals("exact", trie.match("sys/pk/dev1/rpc/request"));
+        assertEquals("plus", trie.match("sys/pk/dev2/rpc/request"));
+        assertEquals("hash", trie.match("sys/pk/dev2/rpc/response"));
+        assertEquals(3, trie.size());
+    }
+
+    @Test
+    void backtracksToWildcardWhenExactBranchDoesNotMatch() {
+        TopicTrie<String> trie = TopicTrie.<String>builder()
+                .add("a/b/c", "exact")
+                .add("a/+/d", "plus")
+                .build();
+
+        assertEquals("plus", trie.match("a/b/d"));
+        assertNull(trie.match("a/b/e"));
+    }
+
+    @Test
+    void hashMatchesParentLevel() {
+        TopicTrie<String> trie = TopicTrie.<String>builder().add("a/#", "hash").build();
+
+        assertEquals("hash", trie.match("a"));
+        assertEquals("hash", trie.match("a/b/c"));
+        assertNull(trie.match("b"));
+    }
+
+    @Test
+    void systemTopicsSkipFirstLevelWildcards() {
+        TopicTrie<String> trie = TopicTrie.<String>builder()
+                .add("#", "all")
+                .add("+/x", "plus")
+                .add("$SYS/x", "sys")
+                .build();
+
+        assertNull(trie.match("$SYS/y"));
+        assertNull(trie.match("$other/x"));
+        assertEquals("sys", trie.match("$SYS/x"));
+        assertEquals("plus", trie.match("a/x"));
+    }
+
+    @Test
+    void duplicateFilterOverridesPreviousValue() {
+        TopicTrie<String> trie = TopicTrie.<String>builder()
+                .add("a/+", "first")
+                .add("a/+", "second")
+                .build();
+
+        assertEquals("second", trie.match("a/b"));
+        assertEquals(1, trie.size());
+    }
+
+    @Test
+    void rejectsMalformedFilters() {
+        assertThrows(IllegalArgumentException.class, () -> TopicTrie.<String>builder().add("a/b+", "x"));
+        assertThrows(IllegalArgumentException.class, () -> TopicTrie.<String>builder().add("a/#/b", "x"));
+        assertThrows(IllegalArgumentException.class, () -> TopicTrie.<String>builder().add("", "x"));
+    }
+
+    @Test
+    void emptyOrNullTopicMatchesNothing() {
+        TopicTrie<String> trie = TopicTrie.<String>builder().add("#", "all").build();
+
+        assertNull(trie.match(""));
+        assertNull(trie.match(null));
+    }
+}
@@ -0,0 +1,89 @@
+package com.cvte.ciot.core.utils;
+
+import com.cvte.ciot.core.model.tsl.TslBasic;
+import com.cvte.ciot.core.model.tsl.TslRawRequest;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 14:30
+ * @description TslByteDecoderTest
+ */
+class TslByteDecoderTest {
+
+    @Test
+    void decodesHeaderFieldsAndParamsRange() {
+        String json = "{\"traceId\":\"t-1\", \"version\":\"1.0\",\"method\":\"thing.service.reboot\","
+                + "\"params\":{\"delay\":5,\"tags\":[\"a\",\"}\"]}}";
+        TslBasic basic = new TslBasic();
+        TslRawRequest req = new TslRawRequest();
+
+        assertTrue(TslByteDecoder.decodeRequest(bytes(json), basic, req));
+        assertEquals("t-1", basic.getTraceId());
+        assertEquals("1.0", basic.getVersion());
+        assertEquals("thing.service.reboot", req.getMethod());
+        assertEquals("{\"delay\":5,\"tags\":[\"a\",\"}\"]}", req.paramsString());
+    }
+
+    @Test
+    void missingOrNullParamsDefaultToEmptyObject() {
+        TslRawRequest req = new TslRawRequest();
+        assertTrue(TslByteDecoder.decodeRequest(bytes("{\"method\":\"m\",\"params\":null}"), new TslBasic(), req));
+        assertFalse(req.hasParams());
+        assertEquals("{}", req.paramsString());
+
+        req = new TslRawRequest();
+        assertTrue(TslByteDecoder.decodeRequest(bytes("{\"method\":\"m\"}"), new TslBasic(), req));
+        assertEquals("{}", req.paramsString());
+    }
+
+    @Test
+    void unescapesStringValues() {
+        TslBasic basic = new TslBasic();
+        TslRawRequest req = new TslRawRequest();
+        String json = "{\"traceId\":\"a\\\"b\\\\c\\u0041\\n\",\"method\":\"m\",\"params\":\"\\u4e2d\"}";
+
+        assertTrue(TslByteDecoder.decodeRequest(bytes(json), basic, req));
+        assertEquals("a\"b\\cA\n", basic.getTraceId());
+        assertEquals("\u4e2d", req.paramsString());
+    }
+
+    @Test
+    void keepsNonAsciiBytesIntact() {
+        TslRawRequest req = new TslRawRequest();
+        assertTrue(TslByteDecoder.decodeRequest(bytes("{\"method\":\"m\",\"params\":{\"name\":\"教室\"}}"),
+                new TslBasic(), req));
+        assertEquals("{\"name\":\"教室\"}", req.paramsString());
+    }
+
+    @Test
+    void rejectsMalformedPayloads() {
+        assertFalse(TslByteDecoder.decodeRequest(bytes("{\"method\":\"m\",\"params\":{\"a\":1"), new TslBasic(), new TslRawRequest()));
+        assertFalse(TslByteDecoder.decodeRequest(bytes("[1,2]"), new TslBasic(), new TslRawRequest()));
+        assertFalse(TslByteDecoder.decodeRequest(bytes("{\"method\" \"m\"}"), new TslBasic(), new TslRawRequest()));
+        assertFalse(TslByteDecoder.decodeRequest(new byte[0], new TslBasic(), new TslRawRequest()));
+    }
+
+    @Test
+    void rejectsMalformedUnicodeEscapes() {
+        assertFalse(TslByteDecoder.decodeRequest(bytes("{\"traceId\":\"\\uZZZZ\",\"method\":\"m\"}"), new TslBasic(), new TslRawRequest()));
+        assertFalse(TslByteDecoder.decodeRequest(bytes("{\"method\":\"\\u-041\"}"), new TslBasic(), new TslRawRequest()));
+        assertFalse(TslByteDecoder.decodeRequest(bytes("{\"method\":\"\\u41\"}"), new TslBasic(), new TslRawRequest()));
+
+        // params 延迟解码，取值时才发现错误
+        TslRawRequest req = new TslRawRequest();
+        assertTrue(TslByteDecoder.decodeRequest(bytes("{\"method\":\"m\",\"params\":\"\\uXYZW\"}"), new TslBasic(), req));
+        assertThrows(NumberFormatException.class, req::paramsString);
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
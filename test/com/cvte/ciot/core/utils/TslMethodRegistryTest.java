@@ -0,0 +1,80 @@
+package com.cvte.ciot.core.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 15:30
+ * @description TslMethodRegistryTest
+ */
+class TslMethodRegistryTest {
+
+    @Test
+    void exactMatchWinsOverPrefix() {
+        TslMethodRegistry<String> registry = new TslMethodRegistry<>();
+        registry.registerPrefix("thing.service.", "service");
+        registry.register("thing.service.reboot", "reboot");
+
+        assertEquals("reboot", registry.lookup("thing.service.reboot"));
+        assertEquals("service", registry.lookup("thing.service.other"));
+        assertNull(registry.lookup("thing.event.x"));
+        assertNull(registry.lookup(null));
+    }
+
+    @Test
+    void longestPrefixWins() {
+        TslMethodRegistry<String> registry = new TslMethodRegistry<>();
+        registry.registerPrefix("thing.", "thing");
+        registry.registerPrefix("thing.property.", "property");
+
+        assertEquals("property", registry.lookup("thing.property.get"));
+        assertEquals("thing", registry.lookup("thing.service.x"));
+    }
+
+    @Test
+    void registerWithIdentifierAddsShortName() {
+        TslMethodRegistry<String> registry = new TslMethodRegistry<>();
+        registry.registerWithIdentifier("thing.service.reboot", "reboot");
+
+        assertEquals("reboot", registry.lookup("thing.service.reboot"));
+        assertEquals("reboot", registry.lookup("reboot"));
+    }
+
+    @Test
+    void builtinCannotBeShadowedOrRemovedByAlias() {
+        TslMethodRegistry<String> registry = new TslMethodRegistry<>();
+        registry.registerPrefix("thing.service.", "service");
+        registry.registerBuiltin("thing.service.configPush", "builtin");
+
+        assertThrows(IllegalArgumentException.class, () -> registry.register("thing.service.configPush", "user"));
+        assertThrows(IllegalArgumentException.class, () -> registry.register("configPush", "user"));
+        assertThrows(IllegalArgumentException.class, () -> registry.register("configPush", null));
+        assertThrows(IllegalArgumentException.class, () -> registry.registerWithIdentifier("x.configPush", "user"));
+        assertNull(registry.lookup("x.configPush"));
+
+        assertEquals("builtin", registry.lookup("thing.service.configPush"));
+        assertEquals("builtin", registry.lookup("configPush"));
+        assertTrue(registry.isBuiltin("configPush"));
+        assertFalse(registry.isBuiltin("thing.service.reboot"));
+        registry.register("thing.service.reboot", "reboot");
+        assertEquals("reboot", registry.lookup("thing.service.reboot"));
+    }
+
+    @Test
+    void nullHandlerRemovesRegistration() {
+        TslMethodRegistry<String> registry = new TslMethodRegistry<>();
+        registry.register("m", "h");
+        registry.registerPrefix("p.", "prefix");
+        registry.register("m", null);
+        registry.registerPrefix("p.", null);
+
+        assertNull(registry.lookup("m"));
+        assertNull(registry.lookup("p.x"));
+    }
+}
@@ -0,0 +1,36 @@
+package com.cvte.ciot.core.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 12:30
+ * @description VirtualThreadsTest
+ */
+class VirtualThreadsTest {
+
+    @Test
+    void executorAvailabilityMatchesSupport() throws Exception {
+        ExecutorService executor = VirtualThreads.newPerTaskExecutor();
+        if (!VirtualThreads.isSupported()) {
+            assertNull(executor);
+            return;
+        }
+        try {
+            CompletableFuture<Boolean> result = new CompletableFuture<>();
+            executor.execute(() -> result.complete(true));
+            assertEquals(Boolean.TRUE, result.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.cvte.ciot.core.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author AnswerDev
+ * @date 2026/10/18 20:40
+ * @description WeightedLaneQueueTest
+ */
+class WeightedLaneQueueTest {
+
+    @Test
+    void lanesAreServedByWeightWithoutStarvation() throws Exception {
+        WeightedLaneQueue<String> queue = new WeightedLaneQueue<>(new String[]{"high", "low"}, new int[]{2, 1}, 16);
+        for (int i = 0; i < 4; i++) queue.offer(0, "h" + i, 0);
+        for (int i = 0; i < 2; i++) queue.offer(1, "l" + i, 0);
+
+        List<String> order = new ArrayList<>();
+        for (int i = 0; i < 6; i++) order.add(queue.take());
+
+        assertEquals(Arrays.asList("h0", "h1", "l0", "h2", "h3", "l1"), order);
+    }
+
+    @Test
+    void higherLaneIsServedFirstWithinRound() throws Exception {
+        WeightedLaneQueue<String> queue = new WeightedLaneQueue<>(new String[]{"high", "low"}, new int[]{1, 1}, 16);
+        queue.offer(1, "low", 0);
+        queue.offer(0, "high", 0);
+
+        assertEquals("high", queue.take());
+        assertEquals("low", queue.take());
+    }
+
+    @Test
+    void fullLaneRejectsWithoutWaiting() throws Exception {
+        WeightedLaneQueue<String> queue = new WeightedLaneQueue<>(new String[]{"a", "b"}, new int[]{1, 1}, 1);
+        assertTrue(queue.offer(0, "x", 0));
+        assertFalse(queue.offer(0, "y", 0));
+        // 其他通道不受影响
+        assertTrue(queue.offer(1, "z", 0));
+
+        assertEquals(1L, queue.stats().get("aRejected"));
+        assertEquals(1L, queue.stats().get("aDepth"));
+        assertEquals(2, queue.drain().size());
+        assertEquals(0L, queue.stats().get("aDepth"));
+    }
+
+    @Test
+    void offerWaitsForSpace() throws Exception {
+        WeightedLaneQueue<String> queue = new WeightedLaneQueue<>(new String[]{"a"}, new int[]{1}, 1);
+        queue.offer(0, "first", 0);
+        Thread consumer = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+                queue.take();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        consumer.start();
+
+        assertTrue(queue.offer(0, "second", 5000));
+        consumer.join();
+        assertEquals("second", queue.take());
+    }
+
+    @Test
+    void offerAllWaitsForSpaceAsConsumerDrains() throws Exception {
+        WeightedLaneQueue<Integer> queue = new WeightedLaneQueue<>(new String[]{"a"}, new int[]{1}, 2);
+        List<Integer> taken = new ArrayList<>();
+        Thread consumer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 5; i++) taken.add(queue.take());
+            } catch (InterruptedException ignored) {
+            }
+        });
+        consumer.start();
+
+        assertEquals(5, queue.offerAll(0, Arrays.asList(0, 1, 2, 3, 4), 5000));
+        consumer.join();
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), taken);
+        assertEquals(5L, queue.stats().get("aEnqueued"));
+    }
+
+    @Test
+    void offerAllStopsAtFullLaneWithoutWaiting() throws Exception {
+        WeightedLaneQueue<String> queue = new WeightedLaneQueue<>(new String[]{"a"}, new int[]{1}, 2);
+
+        assertEquals(2, queue.offerAll(0, Arrays.asList("x", "y", "z"), 0));
+        assertEquals(1L, queue.stats().get("aRejected"));
+        assertEquals("x", queue.take());
+        assertEquals("y", queue.take());
+    }
+
+    @Test
+    void drainLaneLeavesOtherLanes() throws Exception {
+        WeightedLaneQueue<String> queue = new WeightedLaneQueue<>(new String[]{"a", "b"}, new int[]{1, 1}, 2);
+        queue.offer(0, "a1", 0);
+        queue.offer(1, "b1", 0);
+        queue.offer(1, "b2", 0);
+
+        assertEquals(Arrays.asList("b1", "b2"), queue.drainLane(1));
+        assertTrue(queue.offer(1, "b3", 0));
+        assertEquals("a1", queue.take());
+        assertEquals("b3", queue.take());
+        assertEquals(0L, queue.stats().get("bDepth"));
+    }
+
+    @Test
+    void rejectsInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new WeightedLaneQueue<String>(new String[]{"a"}, new int[]{0}, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new WeightedLaneQueue<String>(new String[]{"a", "b"}, new int[]{1}, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new WeightedLaneQueue<String>(new String[]{"a"}, new int[]{1}, 0));
+    }
+}